@@ -0,0 +1,114 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Closed-loop load on GET /api/posts/feed: each of N clients sends its next
+ * request as soon as the previous one answers. For every concurrency level it
+ * warms up, then reports throughput and latency percentiles of the measured
+ * window. Runs as a single source file, no build needed:
+ *
+ *   java FeedLoad.java http://localhost:8080 <jwt> [1,8,32,128,512] [seconds=20] [warmup=5]
+ */
+public class FeedLoad {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: java FeedLoad.java <base-url> <token> [levels] [seconds] [warmup-seconds]");
+            System.exit(2);
+        }
+        URI uri = URI.create(args[0] + "/api/posts/feed");
+        String token = args[1];
+        int[] levels = Arrays.stream((args.length > 2 ? args[2] : "1,8,32,128,512").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        int warmup = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+
+        System.out.printf("%8s %10s %9s %9s %9s %9s %7s%n", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "requests", "errors");
+        for (int clients : levels) {
+            run(client, request, clients, warmup);
+            Result result = run(client, request, clients, seconds);
+            long[] latencies = result.latencies;
+            System.out.printf("%8d %10.1f %9.1f %9.1f %9.1f %9d %7d%n", clients,
+                    latencies.length / (double) seconds,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99),
+                    latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6,
+                    latencies.length, result.errors);
+        }
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, int clients, int seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(clients);
+        List<long[]> perClient = new ArrayList<>();
+        long[] errors = new long[clients];
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            int id = i;
+            long[][] samples = { new long[1024] };
+            int[] count = { 0 };
+            Thread thread = new Thread(() -> {
+                try {
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors[id]++;
+                                continue;
+                            }
+                        } catch (Exception e) {
+                            errors[id]++;
+                            continue;
+                        }
+                        if (count[0] == samples[0].length) {
+                            samples[0] = Arrays.copyOf(samples[0], count[0] * 2);
+                        }
+                        samples[0][count[0]++] = System.nanoTime() - start;
+                    }
+                } finally {
+                    synchronized (perClient) {
+                        perClient.add(Arrays.copyOf(samples[0], count[0]));
+                    }
+                    done.countDown();
+                }
+            }, "load-" + i);
+            threads.add(thread);
+        }
+        threads.forEach(Thread::start);
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, Arrays.stream(errors).sum());
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,56 @@
+#!/bin/bash
+# Compares GET /api/posts/feed on platform threads and on virtual threads at increasing
+# concurrency, starting the packaged backend once per mode on BENCH_PORT.
+#
+# Needs a Java 21 runtime, a jar built with ./mvnw package, the usual DATABASE_* and
+# JWT_SECRET_KEY environment, and BENCH_USERNAME / BENCH_PASSWORD of an account that
+# follows some authors. Both modes share the Hikari pool (10 connections by default), which
+# bounds throughput once Tomcat's 200 threads no longer do; pass pool and thread settings
+# through BENCH_APP_ARGS, e.g. "--spring.datasource.hikari.maximum-pool-size=50".
+#
+#   BENCH_USERNAME=alice BENCH_PASSWORD=secret bench/run.sh [levels] [seconds]
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+LEVELS=${1:-1,8,32,128,512,1024}
+SECONDS_PER_LEVEL=${2:-20}
+PORT=${BENCH_PORT:-8089}
+JAR=$(ls target/backend-*.jar 2>/dev/null | grep -v plain | head -1)
+
+if [ -z "$JAR" ]; then
+    echo "No jar in target/, run ./mvnw package -DskipTests first" >&2
+    exit 1
+fi
+if ! java -version 2>&1 | grep -Eq 'version "(2[1-9]|[3-9][0-9])'; then
+    echo "Virtual threads need Java 21 or later" >&2
+    exit 1
+fi
+
+for mode in false true; do
+    # The rate limiter would otherwise answer most of the load with 429
+    java -jar "$JAR" --server.port="$PORT" --spring.threads.virtual.enabled="$mode" \
+        --spring.jpa.show-sql=false \
+        --app.rate-limit.capacity=1000000000 --app.rate-limit.refill-per-second=1000000000 \
+        ${BENCH_APP_ARGS:-} > "bench/app-virtual-$mode.log" 2>&1 &
+    pid=$!
+    trap 'kill $pid 2>/dev/null' EXIT
+
+    token=""
+    for _ in $(seq 1 120); do
+        token=$(curl -sf -X POST "http://localhost:$PORT/api/auth/login" -H 'Content-Type: application/json' \
+            -d "{\"username\":\"$BENCH_USERNAME\",\"password\":\"$BENCH_PASSWORD\"}" \
+            | sed -n 's/.*"token":"\([^"]*\)".*/\1/p') && [ -n "$token" ] && break
+        sleep 1
+    done
+    if [ -z "$token" ]; then
+        echo "Backend did not come up or login failed, see bench/app-virtual-$mode.log" >&2
+        exit 1
+    fi
+
+    echo "== spring.threads.virtual.enabled=$mode"
+    java bench/FeedLoad.java "http://localhost:$PORT" "$token" "$LEVELS" "$SECONDS_PER_LEVEL" \
+        | tee "bench/results-virtual-$mode.txt"
+
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+done
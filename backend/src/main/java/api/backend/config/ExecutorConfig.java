@@ -0,0 +1,132 @@
+package api.backend.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Executors for work handed off the request thread. With
+ * {@code spring.threads.virtual.enabled} on a Java 21 runtime, the executors
+ * whose tasks mostly wait on the database, WebSocket sessions or storage start
+ * a virtual thread per task instead of queueing for a small pool; CPU-bound
+ * ones keep their platform threads either way.
+ */
+@Configuration
+public class ExecutorConfig {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorConfig.class);
+
+    private final boolean virtualThreads;
+
+    public ExecutorConfig(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        if (!virtualThreads && environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false)) {
+            logger.warn("Virtual threads need Java 21 or later, running on platform threads");
+        }
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor notificationFanOutExecutor(
+            @Value("${app.notifications.fanout-threads}") int threads,
+            @Value("${app.notifications.queue-capacity}") int queueCapacity) {
+        return rejectingExecutor("notification-fanout-", threads, queueCapacity);
+    }
+
+    @Bean
+    public AsyncTaskExecutor notificationDeliveryExecutor(
+            @Value("${app.notifications.delivery-threads}") int threads,
+            @Value("${app.notifications.delivery-queue-capacity}") int queueCapacity) {
+        return blockingExecutor("notification-delivery-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor avatarThumbnailExecutor(
+            @Value("${app.avatars.thumbnail-threads}") int threads,
+            @Value("${app.avatars.thumbnail-queue-capacity}") int queueCapacity) {
+        return boundedExecutor("avatar-thumbnail-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mediaUploadExecutor(
+            @Value("${app.media.upload-threads}") int threads,
+            @Value("${app.media.upload-queue-capacity}") int queueCapacity) {
+        return rejectingExecutor("media-upload-", threads, queueCapacity);
+    }
+
+    // Runs @Scheduled jobs; named so it is picked over the WebSocket broker's scheduler
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${app.scheduling.pool-size}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setPoolSize(poolSize);
+        return scheduler;
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler notificationRetryScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("notification-retry-");
+        scheduler.setPoolSize(1);
+        return scheduler;
+    }
+
+    /*
+     * On virtual threads there is no queue: up to threads tasks run at once,
+     * as many as the pool would run, and past that the submitting thread waits,
+     * much as it would run the task itself. Queue slots are not turned into
+     * running tasks, since each one would want a connection from the pool.
+     */
+    private AsyncTaskExecutor blockingExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        if (!virtualThreads) {
+            return boundedExecutor(threadNamePrefix, threads, queueCapacity);
+        }
+        return virtualExecutor(threadNamePrefix, threads);
+    }
+
+    static SimpleAsyncTaskExecutor virtualExecutor(String threadNamePrefix, int concurrencyLimit) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(concurrencyLimit);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+
+    /*
+     * For work that is also recorded in the database: a full queue rejects the
+     * task with a TaskRejectedException and the submitter leaves it for a
+     * poller, so neither it nor the task ever runs on a request thread.
+     */
+    private ThreadPoolTaskExecutor rejectingExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setVirtualThreads(virtualThreads);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    // A full queue makes the submitting thread run the task itself, which slows producers down instead of dropping work
+    static ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
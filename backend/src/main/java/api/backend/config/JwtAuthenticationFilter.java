@@ -9,14 +9,12 @@ import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import api.backend.service.RateLimiterService;
 
-import io.github.resilience4j.ratelimiter.RequestNotPermitted;
 import io.jsonwebtoken.Claims;
 
 import java.io.IOException;
@@ -25,13 +23,13 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
+    private final JwtPrincipalResolver principalResolver;
     private final RateLimiterService rateLimiterService;
     private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService, RateLimiterService rateLimiterService) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, JwtPrincipalResolver principalResolver, RateLimiterService rateLimiterService) {
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
+        this.principalResolver = principalResolver;
         this.rateLimiterService = rateLimiterService;
     }
 
@@ -50,11 +48,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             @NonNull HttpServletResponse response,
             @NonNull FilterChain filterChain) throws ServletException, IOException {
 
-        String clientIp = getClientIP(request);
-        var limiter = rateLimiterService.allowRequest(clientIp);
-        if (!limiter.acquirePermission()) {
-            throw  RequestNotPermitted.createRequestNotPermitted(limiter);
-        }
+        rateLimiterService.acquire(getClientIP(request), request.getRequestURI());
 
         if (costumeShouldNotFilter(request)) {
             filterChain.doFilter(request, response);
@@ -69,7 +63,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             String username = jwtUtil.getUsername(claims);
 
             if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                UserDetails userDetails = principalResolver.resolve(claims);
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
                 SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -0,0 +1,61 @@
+package api.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import api.backend.model.user.AccountState;
+import api.backend.model.user.User;
+import api.backend.service.AccountStateService;
+import io.jsonwebtoken.Claims;
+
+/**
+ * Turns verified token claims into the principal of a request or WebSocket
+ * session. In stateless mode the principal is built from the claims and only
+ * checked against {@link AccountStateService}; otherwise the user is loaded
+ * from the database as before.
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private final JwtUtil jwtUtil;
+    private final UserDetailsService userDetailsService;
+    private final AccountStateService accountStateService;
+    private final boolean stateless;
+
+    public JwtPrincipalResolver(JwtUtil jwtUtil, UserDetailsService userDetailsService,
+            AccountStateService accountStateService,
+            @Value("${app.auth.stateless-principal}") boolean stateless) {
+        this.jwtUtil = jwtUtil;
+        this.userDetailsService = userDetailsService;
+        this.accountStateService = accountStateService;
+        this.stateless = stateless;
+    }
+
+    public UserDetails resolve(Claims claims) {
+        String username = jwtUtil.getUsername(claims);
+        Number id = claims.get("id", Number.class);
+        if (!stateless || id == null) {
+            return userDetailsService.loadUserByUsername(username);
+        }
+
+        AccountState state = accountStateService.get(id.longValue())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        if (state.isBanned()) {
+            throw new DisabledException("Account is banned until " + state.bannedUntil());
+        }
+
+        // Only what the token carries is filled in; services load the entity when they need more
+        User user = new User();
+        user.setId(state.id());
+        user.setUsername(username);
+        user.setFullName(claims.get("fullname", String.class));
+        user.setEmail(claims.get("email", String.class));
+        user.setRole(state.role());
+        user.setBannedUntil(state.bannedUntil());
+        return user;
+    }
+}
@@ -1,8 +1,13 @@
 package api.backend.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -11,20 +16,42 @@ import api.backend.model.user.User;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class JwtUtil {
     private final Long expiration;
     private final SecretKey signingKey;
+    // Parsers are immutable and safe to share between threads
+    private final JwtParser parser;
+
+    // Claims of tokens that already passed signature verification, keyed by a digest of the token
+    private final Map<String, VerifiedClaims> verified = new ConcurrentHashMap<>();
+    private final int cacheSize;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
 
     public JwtUtil(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.expiration}") Long expiration) {
+            @Value("${jwt.expiration}") Long expiration,
+            @Value("${app.auth.token-cache-size}") int cacheSize,
+            MeterRegistry meterRegistry) {
         this.expiration = expiration;
 
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(signingKey).build();
+
+        this.cacheSize = cacheSize;
+        this.cacheHits = meterRegistry.counter("jwt.cache.hits");
+        this.cacheMisses = meterRegistry.counter("jwt.cache.misses");
+        Gauge.builder("jwt.cache.size", verified, Map::size).register(meterRegistry);
     }
 
     public String generateToken(UserDetails userDetails) {
@@ -44,12 +71,55 @@ public class JwtUtil {
     }
 
     public Claims validateAndExtractAllClaims(String token) {
+        String key = digest(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedClaims cached = verified.get(key);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                cacheHits.increment();
+                return cached.claims();
+            }
+            verified.remove(key);
+        }
+        cacheMisses.increment();
+
+        // Throws for bad signatures and expired tokens, neither of which is cached
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiresAt = claims.getExpiration();
+        if (expiresAt != null) {
+            if (verified.size() >= cacheSize) {
+                evict(now);
+            }
+            verified.put(key, new VerifiedClaims(claims, expiresAt.getTime()));
+        }
+        return claims;
+    }
+
+    // Drops expired entries first; if the cache is still full, drops an arbitrary tenth of it
+    private void evict(long now) {
+        verified.values().removeIf(entry -> entry.expiresAt() <= now);
+        if (verified.size() < cacheSize) {
+            return;
+        }
+        int excess = verified.size() - cacheSize + Math.max(1, cacheSize / 10);
+        Iterator<String> keys = verified.keySet().iterator();
+        while (excess-- > 0 && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 
-        return Jwts.parser()
-                .verifyWith(signingKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    private record VerifiedClaims(Claims claims, long expiresAt) {
     }
 
     // Helper method that uses the one above
@@ -1,6 +1,9 @@
 package api.backend.config;
 
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.lang.NonNull;
@@ -13,9 +16,11 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final JwtChannelInterceptor jwtChannelInterceptor;
+    private final boolean virtualThreads;
 
-    public WebSocketConfig(JwtChannelInterceptor jwtChannelInterceptor) {
+    public WebSocketConfig(JwtChannelInterceptor jwtChannelInterceptor, Environment environment) {
         this.jwtChannelInterceptor = jwtChannelInterceptor;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
     }
 
     @Override
@@ -33,5 +38,16 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     @Override
     public void configureClientInboundChannel(@NonNull ChannelRegistration registration) {
         registration.interceptors(jwtChannelInterceptor);
+        if (virtualThreads) {
+            registration.executor(ExecutorConfig.virtualExecutor("stomp-inbound-", SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY));
+        }
     }
-}
\ No newline at end of file
+
+    // Writing a frame blocks on the socket, which on a virtual thread holds no pool thread
+    @Override
+    public void configureClientOutboundChannel(@NonNull ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(ExecutorConfig.virtualExecutor("stomp-outbound-", SimpleAsyncTaskExecutor.UNBOUNDED_CONCURRENCY));
+        }
+    }
+}
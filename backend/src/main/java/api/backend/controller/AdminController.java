@@ -1,7 +1,9 @@
 package api.backend.controller;
 
+import java.time.LocalDate;
 import java.util.List;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -14,12 +16,16 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportGroupResponse;
 import api.backend.model.report.ReportResponse;
+import api.backend.model.stats.RollupPoint;
 import api.backend.model.user.AdminUserResponse;
 import api.backend.model.user.BanRequest;
 import api.backend.model.user.User;
 import api.backend.service.AdminService;
 import api.backend.service.ReportService;
+import api.backend.service.RollupService;
 import api.backend.service.UserService;
 import jakarta.validation.Valid;
 
@@ -31,11 +37,14 @@ public class AdminController {
     UserService userService;
     ReportService reportService;
     AdminService adminService;
+    RollupService rollupService;
 
-    public AdminController(UserService userService, ReportService reportService, AdminService adminService) {
+    public AdminController(UserService userService, ReportService reportService, AdminService adminService,
+            RollupService rollupService) {
         this.userService = userService;
         this.reportService = reportService;
         this.adminService = adminService;
+        this.rollupService = rollupService;
     }
 
     @GetMapping("/users")
@@ -73,11 +82,14 @@ public class AdminController {
     }
 
     @GetMapping("/reports")
-    public ResponseEntity<List<ReportResponse>> getAllReports(@RequestParam(defaultValue = "0") long cursor) {
+    public ResponseEntity<List<ReportResponse>> getAllReports(@RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String target,
+            @RequestParam(required = false) Long reportedId) {
         if (cursor == 0) {
             cursor = Long.MAX_VALUE;
         }
-        List<ReportResponse> reports = reportService.getAllReports(cursor);
+        List<ReportResponse> reports = reportService.getReports(cursor, status, target, reportedId);
         return ResponseEntity.ok(reports);
     }
 
@@ -92,10 +104,41 @@ public class AdminController {
         return ResponseEntity.ok(reportService.dismissReport(reportId, user));
     }
 
+    @GetMapping("/reports/groups")
+    public ResponseEntity<List<ReportGroupResponse>> getReportGroups(
+            @RequestParam(defaultValue = "pending") String status,
+            @RequestParam(required = false) Double priority,
+            @RequestParam(required = false) Long cursor) {
+        return ResponseEntity.ok(reportService.getReportGroups(status, priority, cursor));
+    }
+
+    @GetMapping("/reports/groups/{groupId}")
+    public ResponseEntity<ReportGroupResponse> getReportGroup(@PathVariable long groupId) {
+        return ResponseEntity.ok(reportService.getReportGroupById(groupId));
+    }
+
+    @PatchMapping("/reports/groups/{groupId}/resolve")
+    public ResponseEntity<String> resolveReportGroup(@PathVariable long groupId) {
+        return ResponseEntity.ok(reportService.reviewReportGroup(groupId, Report.Status.RESOLVED));
+    }
+
+    @PatchMapping("/reports/groups/{groupId}/dismiss")
+    public ResponseEntity<String> dismissReportGroup(@PathVariable long groupId) {
+        return ResponseEntity.ok(reportService.reviewReportGroup(groupId, Report.Status.DISMISSED));
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<Object> getAdminStats() {
         return ResponseEntity.ok(adminService.getAdminStats());
     }
+
+    @GetMapping("/stats/timeseries")
+    public ResponseEntity<List<RollupPoint>> getTimeseries(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String granularity) {
+        return ResponseEntity.ok(rollupService.getTimeseries(from, to, granularity));
+    }
     
 
 }
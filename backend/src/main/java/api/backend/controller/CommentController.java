@@ -4,6 +4,7 @@ package api.backend.controller;
 import api.backend.model.user.User;
 import api.backend.model.comment.CommentRequest;
 import api.backend.model.comment.CommentResponse;
+import api.backend.model.comment.CommentThreadResponse;
 import api.backend.service.CommentService;
 
 import org.springframework.http.ResponseEntity;
@@ -42,6 +43,17 @@ public class CommentController {
         return ResponseEntity.ok(commentService.getTopLevelComments(id, cursor));
     }
 
+    // Top-level comments with the start of each one's replies, replacing one /replies call per comment
+    @GetMapping("/post/{id}/thread")
+    public ResponseEntity<List<CommentThreadResponse>> getThread(@PathVariable Long id,
+            @RequestParam(defaultValue = "0") long cursor,
+            @RequestParam(defaultValue = "3") int replies) {
+        if (cursor == 0) {
+            cursor = Long.MAX_VALUE;
+        }
+        return ResponseEntity.ok(commentService.getThread(id, cursor, Math.max(0, Math.min(replies, 20))));
+    }
+
     @PostMapping("/{postId}")
     public ResponseEntity<CommentResponse> addComment(@PathVariable Long postId, @RequestBody CommentRequest request,
             @AuthenticationPrincipal User currentUser) {
@@ -1,63 +1,100 @@
 package api.backend.controller;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.Map;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import api.backend.service.CloudinaryService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+
+import api.backend.model.media.MediaUploadResponse;
+import api.backend.model.media.UploadSessionRequest;
+import api.backend.model.media.UploadSessionResponse;
+import api.backend.service.ChunkedUploadService;
+import api.backend.service.MediaUploadService;
 import api.backend.service.UserService;
 
+// The type of an upload is sniffed from its content while it is streamed, not taken from its name
 @RestController
 @RequestMapping("/api/media")
 public class FileUploadController {
 
-    private CloudinaryService cloudinaryService;
+    private MediaUploadService mediaUploadService;
+    private ChunkedUploadService chunkedUploadService;
     private UserService userService;
-    private static List<String> ALLOWED_TYPES_IMAGES = List.of("jpg", "jpeg", "png", "gif", "webp");
-    private List<String> ALLOWED_TYPES_VIDEOS = List.of("mp4", "avi", "mov", "wmv", "flv", "webm", "mkv", "m4v");
 
-    public FileUploadController(CloudinaryService cloudinaryService, UserService userService) {
-        this.cloudinaryService = cloudinaryService;
+    public FileUploadController(MediaUploadService mediaUploadService, ChunkedUploadService chunkedUploadService,
+            UserService userService) {
+        this.mediaUploadService = mediaUploadService;
+        this.chunkedUploadService = chunkedUploadService;
         this.userService = userService;
     }
 
     @PostMapping("/upload")
     public ResponseEntity<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) {
-        String fileName = file.getOriginalFilename();
-        String resourceType = "";
-        if (fileName != null) {
-            String ext = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-            if (ALLOWED_TYPES_IMAGES.contains(ext)) {
-                resourceType = "image";
-            } else if (ALLOWED_TYPES_VIDEOS.contains(ext)) {
-                resourceType = "video";
-            } else {
-                throw new IllegalArgumentException("type not allowed");
-            }
-        }
-        return ResponseEntity.ok(Map.of("url", cloudinaryService.uploadFile(file, "files", resourceType)));
-    }
-
-     @PatchMapping("/local/upload")
+        return ResponseEntity.ok(Map.of("url", mediaUploadService.upload(file)));
+    }
+
+    // Answers as soon as the file is spooled; the URL follows on /user/queue/uploads or from the status endpoint
+    @PostMapping("/uploads")
+    public ResponseEntity<MediaUploadResponse> submitUpload(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(mediaUploadService.submit(file));
+    }
+
+    @GetMapping("/uploads/{id}")
+    public ResponseEntity<MediaUploadResponse> getUpload(@PathVariable long id) {
+        return ResponseEntity.ok(mediaUploadService.getUpload(id));
+    }
+
+    // Resumable uploads: create a session, PUT its chunks in any order, then complete it
+    @PostMapping("/sessions")
+    public ResponseEntity<UploadSessionResponse> createSession(@Valid @RequestBody UploadSessionRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(chunkedUploadService.create(request.size()));
+    }
+
+    @GetMapping("/sessions/{id}")
+    public ResponseEntity<UploadSessionResponse> getSession(@PathVariable String id) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(id));
+    }
+
+    // The body is the raw chunk; X-Chunk-Sha256 carries its hex digest
+    @PutMapping("/sessions/{id}/chunks/{index}")
+    public ResponseEntity<UploadSessionResponse> putChunk(@PathVariable String id, @PathVariable int index,
+            @RequestHeader(value = "X-Chunk-Sha256", required = false) String checksum,
+            HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.putChunk(id, index, checksum,
+                request.getContentLengthLong(), request.getInputStream()));
+    }
+
+    @PostMapping("/sessions/{id}/complete")
+    public ResponseEntity<MediaUploadResponse> completeSession(@PathVariable String id) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(chunkedUploadService.complete(id));
+    }
+
+    @DeleteMapping("/sessions/{id}")
+    public ResponseEntity<Void> abortSession(@PathVariable String id) {
+        chunkedUploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PatchMapping("/local/upload")
     public ResponseEntity<Map<String, String>> uploadLocalFile(@RequestParam("file") MultipartFile file) {
-        String fileName = file.getOriginalFilename();
-        String ext = "";
-        if (fileName != null) {
-            ext = fileName.substring(fileName.lastIndexOf(".") + 1).toLowerCase();
-            if (!FileUploadController.ALLOWED_TYPES_IMAGES.contains(ext)) {
-                throw new IllegalArgumentException("type not allowed");
-            }
-        }
-
-        var res = this.userService.updateProfile(file,ext);
-        
+        var res = this.userService.updateProfile(file);
+
         return ResponseEntity.ok(Map.of("url", res ));
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,8 @@ package api.backend.controller;
 import api.backend.model.user.User;
 import api.backend.model.post.PostRequest;
 import api.backend.model.post.PostResponse;
+import api.backend.model.post.PostSearchPage;
+import api.backend.service.PostSearchService;
 import api.backend.service.PostService;
 import jakarta.validation.Valid;
 
@@ -19,9 +21,11 @@ import java.util.List;
 public class PostController {
 
     private final PostService postService;
+    private final PostSearchService postSearchService;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostSearchService postSearchService) {
         this.postService = postService;
+        this.postSearchService = postSearchService;
     }
 
     @PostMapping
@@ -52,6 +56,14 @@ public class PostController {
         return ResponseEntity.ok(posts);
     }
 
+    // Pass back nextRank and nextCursor from the previous page to continue
+    @GetMapping("/search")
+    public ResponseEntity<PostSearchPage> searchPosts(@RequestParam String q,
+            @RequestParam(required = false) Float rank,
+            @RequestParam(required = false) Long cursor) {
+        return ResponseEntity.ok(postSearchService.search(q, rank, cursor));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PostResponse> getPostById(@PathVariable Long id) {
         return ResponseEntity.ok(postService.getPostById(id));
@@ -5,6 +5,7 @@ import org.springframework.web.bind.annotation.*;
 
 import api.backend.model.post.PostResponse;
 import api.backend.model.user.UserResponse;
+import api.backend.model.user.UserSuggestion;
 import api.backend.service.PostService;
 import api.backend.service.UserService;
 
@@ -40,6 +41,13 @@ public class UserController {
         return ResponseEntity.ok(users);
     }
 
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<UserSuggestion>> autocomplete(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(userService.autocomplete(query, limit));
+    }
+
     @GetMapping("/username/{username}")
     public ResponseEntity<UserResponse> getUser(@PathVariable String username) {
         UserResponse user = userService.getUserByUsername(username);
@@ -0,0 +1,7 @@
+package api.backend.exception;
+
+public class UploadTooLargeException extends RuntimeException {
+    public UploadTooLargeException(long maxBytes) {
+        super("File is too large, the limit is " + maxBytes / (1024 * 1024) + "MB");
+    }
+}
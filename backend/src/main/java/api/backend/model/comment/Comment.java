@@ -14,6 +14,7 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -21,7 +22,9 @@ import org.hibernate.annotations.OnDeleteAction;
 @Entity
 @Setter
 @Getter
-@Table(name = "comments")
+@Table(name = "comments", indexes = {
+        @Index(name = "idx_comments_created_at", columnList = "created_at")
+})
 public class Comment {
 
     @Id
@@ -61,10 +64,21 @@ public class Comment {
     @OneToMany(mappedBy = "comment", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<CommentLike> likes = new HashSet<>();
 
-    @Column(nullable = false, columnDefinition = "integer default 0")
+    // Ids of the root comment down to this one, each zero-padded and followed by '/', so
+    // sorting by path lists a thread depth-first and a prefix match selects a whole subtree.
+    // Each level adds 20 characters and replies nest without limit, so it has no length
+    @Column(columnDefinition = "TEXT")
+    private String path;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int depth = 0;
+
+    // Written by CounterService in batched increments, never by entity updates
+    @Column(nullable = false, updatable = false, columnDefinition = "integer default 0")
     private int repliesCount = 0;
 
-    @Column(nullable = false, columnDefinition = "integer default 0")
+    @Column(nullable = false, updatable = false, columnDefinition = "integer default 0")
     private int likesCount = 0;
 
     // Default constructor for JPA
@@ -82,4 +96,16 @@ public class Comment {
             parent.getReplies().add(this);
         }
     }
+
+    // Needs the generated id, so it is called once the comment has been saved
+    public void assignPath() {
+        String segment = String.format("%019d/", id);
+        if (parent == null) {
+            path = segment;
+            depth = 0;
+        } else if (parent.getPath() != null) {
+            path = parent.getPath() + segment;
+            depth = parent.getDepth() + 1;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,8 @@
+package api.backend.model.comment;
+
+import java.util.List;
+
+public record CommentThreadResponse(
+                CommentResponse comment,
+                List<CommentResponse> replies) {
+}
@@ -15,6 +15,8 @@ import org.hibernate.annotations.OnDeleteAction;
 @NoArgsConstructor
 @Table(name = "comment_likes", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"user_id", "comment_id"})
+}, indexes = {
+        @Index(name = "idx_comment_likes_comment", columnList = "comment_id")
 })
 public class CommentLike {
     @Id
@@ -0,0 +1,50 @@
+package api.backend.model.media;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A file of the content store, keyed by the SHA-256 of its bytes, with the
+ * number of avatars and uploads that point at it. Once nothing does, it is
+ * left alone for a grace period and then collected.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "media_blobs", indexes = {
+        @Index(name = "idx_media_blobs_unreferenced", columnList = "ref_count, unreferenced_since")
+})
+public class MediaBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false, length = 8)
+    private String extension;
+
+    @Column(name = "byte_size", nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "unreferenced_since")
+    private LocalDateTime unreferencedSince;
+
+    public String getName() {
+        return sha256 + "." + extension;
+    }
+}
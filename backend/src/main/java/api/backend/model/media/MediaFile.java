@@ -0,0 +1,47 @@
+package api.backend.model.media;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A stored file as served: its validator, whether its name is content
+ * versioned (and so cacheable for good) and any pre-compressed variants next
+ * to it, in order of preference.
+ */
+public record MediaFile(Path path, String contentType, long length, long lastModified, String etag,
+        boolean immutable, List<Variant> variants) {
+
+    public record Variant(String encoding, Path path, long length, String etag) {
+    }
+
+    public MediaFile revalidated() {
+        return new MediaFile(path, contentType, length, lastModified, etag, false, variants);
+    }
+
+    // The first variant the client accepts, or null to send the file as it is
+    public Variant variantFor(String acceptEncoding) {
+        if (acceptEncoding == null || variants.isEmpty()) {
+            return null;
+        }
+        for (Variant variant : variants) {
+            for (String coding : acceptEncoding.split(",")) {
+                String[] parts = coding.trim().toLowerCase(Locale.ROOT).split(";");
+                if (parts[0].trim().equals(variant.encoding()) && !rejected(parts)) {
+                    return variant;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean rejected(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].replace(" ", "");
+            if (parameter.startsWith("q=")) {
+                return parameter.substring(2).matches("0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
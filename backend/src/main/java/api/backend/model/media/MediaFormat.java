@@ -0,0 +1,149 @@
+package api.backend.model.media;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * The upload formats we accept, recognised by their leading bytes rather than
+ * by the file name or the content type the client sent.
+ */
+public enum MediaFormat {
+    JPEG(Kind.IMAGE, "jpg", "image/jpeg"),
+    PNG(Kind.IMAGE, "png", "image/png"),
+    GIF(Kind.IMAGE, "gif", "image/gif"),
+    WEBP(Kind.IMAGE, "webp", "image/webp"),
+    MP4(Kind.VIDEO, "mp4", "video/mp4"),
+    M4V(Kind.VIDEO, "m4v", "video/x-m4v"),
+    MOV(Kind.VIDEO, "mov", "video/quicktime"),
+    WEBM(Kind.VIDEO, "webm", "video/webm"),
+    MKV(Kind.VIDEO, "mkv", "video/x-matroska"),
+    AVI(Kind.VIDEO, "avi", "video/x-msvideo"),
+    FLV(Kind.VIDEO, "flv", "video/x-flv"),
+    WMV(Kind.VIDEO, "wmv", "video/x-ms-wmv");
+
+    public enum Kind {
+        IMAGE, VIDEO;
+
+        // As expected by Cloudinary's resource_type
+        public String resourceType() {
+            return name().toLowerCase();
+        }
+    }
+
+    // Enough for every signature below, including the EBML doc type
+    public static final int HEADER_BYTES = 64;
+
+    private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    private static final byte[] EBML_SIGNATURE = { 0x1A, 0x45, (byte) 0xDF, (byte) 0xA3 };
+    private static final byte[] ASF_SIGNATURE = { 0x30, 0x26, (byte) 0xB2, 0x75, (byte) 0x8E, 0x66, (byte) 0xCF, 0x11 };
+    // Major brands of an ftyp box; HEIC and AVIF photos use the same box and must not pass as video
+    private static final Set<String> MP4_BRANDS = Set.of("isom", "iso2", "iso4", "iso5", "iso6", "mp41", "mp42",
+            "avc1", "dash", "mmp4", "MSNV");
+    private static final Set<String> M4V_BRANDS = Set.of("M4V ", "M4VH", "M4VP");
+
+    private final Kind kind;
+    private final String extension;
+    private final String contentType;
+
+    MediaFormat(Kind kind, String extension, String contentType) {
+        this.kind = kind;
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    // Stored files carry the extension of their sniffed format
+    public static MediaFormat ofExtension(String extension) {
+        for (MediaFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(extension)) {
+                return format;
+            }
+        }
+        return "jpeg".equalsIgnoreCase(extension) ? JPEG : null;
+    }
+
+    /**
+     * The format whose signature the first {@code length} bytes of a file
+     * carry, or null when it is none of ours.
+     */
+    public static MediaFormat sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0, (byte) 0xFF, (byte) 0xD8, (byte) 0xFF)) {
+            return JPEG;
+        }
+        if (startsWith(head, length, 0, PNG_SIGNATURE)) {
+            return PNG;
+        }
+        if (startsWith(head, length, 0, "GIF87a") || startsWith(head, length, 0, "GIF89a")) {
+            return GIF;
+        }
+        if (startsWith(head, length, 0, "RIFF")) {
+            if (startsWith(head, length, 8, "WEBP")) {
+                return WEBP;
+            }
+            return startsWith(head, length, 8, "AVI ") ? AVI : null;
+        }
+        if (startsWith(head, length, 4, "ftyp")) {
+            if (length < 12) {
+                return null;
+            }
+            String brand = new String(head, 8, 4, StandardCharsets.US_ASCII);
+            if (brand.equals("qt  ")) {
+                return MOV;
+            }
+            if (M4V_BRANDS.contains(brand)) {
+                return M4V;
+            }
+            return MP4_BRANDS.contains(brand) ? MP4 : null;
+        }
+        if (startsWith(head, length, 4, "moov") || startsWith(head, length, 4, "mdat")) {
+            return MOV;
+        }
+        if (startsWith(head, length, 0, EBML_SIGNATURE)) {
+            return contains(head, Math.min(length, HEADER_BYTES), "webm") ? WEBM : MKV;
+        }
+        if (startsWith(head, length, 0, "FLV") && length > 3 && head[3] == 1) {
+            return FLV;
+        }
+        if (startsWith(head, length, 0, ASF_SIGNATURE)) {
+            return WMV;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, String signature) {
+        return startsWith(head, length, offset, signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean startsWith(byte[] head, int length, int offset, byte... signature) {
+        if (offset + signature.length > length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[offset + i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(byte[] head, int length, String text) {
+        byte[] needle = text.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i + needle.length <= length; i++) {
+            if (startsWith(head, length, i, needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package api.backend.model.media;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import api.backend.model.user.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * An upload accepted by the API and handed to the media storage in the
+ * background. The file waits at {@code spoolPath} until it has been stored;
+ * the spool directory is local, so only the node that accepted the upload
+ * can finish it.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "media_uploads", indexes = {
+        @Index(name = "idx_media_uploads_owner", columnList = "owner_id"),
+        @Index(name = "idx_media_uploads_node_status", columnList = "node, status")
+})
+public class MediaUpload {
+    public enum Status {
+        PENDING, UPLOADING, DONE, FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private MediaFormat format;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    private String spoolPath;
+
+    // app.cluster.node-id of the node holding the spooled file
+    @Column(length = 64)
+    private String node;
+
+    @Column(length = 1024)
+    private String url;
+
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime completedAt;
+
+    public MediaUpload(User owner, StoredUpload spooled, String node) {
+        this.owner = owner;
+        this.node = node;
+        this.format = spooled.format();
+        this.size = spooled.size();
+        this.sha256 = spooled.sha256();
+        this.spoolPath = spooled.path().toString();
+    }
+}
@@ -0,0 +1,27 @@
+package api.backend.model.media;
+
+import java.time.LocalDateTime;
+
+public record MediaUploadResponse(
+        Long id,
+        String status,
+        String type,
+        String contentType,
+        long size,
+        String url,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt) {
+
+    public static MediaUploadResponse of(MediaUpload upload) {
+        return new MediaUploadResponse(upload.getId(),
+                upload.getStatus().toString(),
+                upload.getFormat().getKind().resourceType(),
+                upload.getFormat().getContentType(),
+                upload.getSize(),
+                upload.getUrl(),
+                upload.getError(),
+                upload.getCreatedAt(),
+                upload.getCompletedAt());
+    }
+}
@@ -0,0 +1,7 @@
+package api.backend.model.media;
+
+import java.nio.file.Path;
+
+// sha256 is the hex digest of the content, computed while it was streamed
+public record StoredUpload(Path path, MediaFormat format, long size, String sha256) {
+}
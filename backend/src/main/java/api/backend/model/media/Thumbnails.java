@@ -0,0 +1,61 @@
+package api.backend.model.media;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Naming of the square JPEG thumbnails kept next to each local avatar:
+ * {@code images/1-3fa9c2e4b1d0a7c6.png} gets {@code images/1-3fa9c2e4b1d0a7c6-w48.jpg}
+ * and so on for every size. The names are fixed by the avatar alone, so
+ * responses can list them before the thumbnails have been written.
+ */
+public final class Thumbnails {
+    public static final List<Integer> SIZES = List.of(48, 96, 256);
+
+    private static final Pattern NAME = Pattern.compile("(.+)-w(\\d{1,4})\\.jpg");
+    private static final String LOCAL_PREFIX = "images/";
+
+    private Thumbnails() {
+    }
+
+    public static String name(String original, int size) {
+        int dot = original.lastIndexOf('.');
+        return (dot > 0 ? original.substring(0, dot) : original) + "-w" + size + ".jpg";
+    }
+
+    // Size to URL for a local avatar; remote and missing avatars have none
+    public static Map<Integer, String> urls(String avatar) {
+        if (avatar == null || !avatar.startsWith(LOCAL_PREFIX)) {
+            return Map.of();
+        }
+        Map<Integer, String> urls = new LinkedHashMap<>();
+        for (int size : SIZES) {
+            urls.put(size, name(avatar, size));
+        }
+        return urls;
+    }
+
+    public static boolean isThumbnail(String name) {
+        Matcher matcher = NAME.matcher(name);
+        return matcher.matches() && SIZES.contains(Integer.parseInt(matcher.group(2)));
+    }
+
+    /**
+     * The candidate names of the original a thumbnail was made from, one per
+     * image extension, or none when {@code name} is not a thumbnail.
+     */
+    public static List<String> originalsOf(String name) {
+        Matcher matcher = NAME.matcher(name);
+        if (!matcher.matches() || !SIZES.contains(Integer.parseInt(matcher.group(2)))) {
+            return List.of();
+        }
+        return Arrays.stream(MediaFormat.values())
+                .filter(format -> format.getKind() == MediaFormat.Kind.IMAGE)
+                .map(format -> matcher.group(1) + "." + format.getExtension())
+                .toList();
+    }
+}
@@ -0,0 +1,83 @@
+package api.backend.model.media;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import api.backend.model.user.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A resumable upload of {@code size} bytes, sent as chunks of
+ * {@code chunkSize} bytes (the last one may be shorter) in any order. The
+ * chunks are written in place into a file of the final size at
+ * {@code spoolPath}. Sessions that see no chunk until {@code expiresAt} are
+ * dropped with their file.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_owner", columnList = "owner_id"),
+        @Index(name = "idx_upload_sessions_expires", columnList = "expires_at")
+})
+public class UploadSession {
+
+    // Random, so a session cannot be guessed from another one
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User owner;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private int chunkSize;
+
+    @Column(nullable = false)
+    private String spoolPath;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public UploadSession(String id, User owner, long size, int chunkSize, String spoolPath, LocalDateTime expiresAt) {
+        this.id = id;
+        this.owner = owner;
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.spoolPath = spoolPath;
+        this.expiresAt = expiresAt;
+    }
+
+    public int getChunkCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    public long offsetOf(int index) {
+        return (long) index * chunkSize;
+    }
+
+    public int lengthOf(int index) {
+        return (int) Math.min(chunkSize, size - offsetOf(index));
+    }
+}
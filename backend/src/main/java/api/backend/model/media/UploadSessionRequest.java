@@ -0,0 +1,8 @@
+package api.backend.model.media;
+
+import jakarta.validation.constraints.Positive;
+
+public record UploadSessionRequest(
+    @Positive(message = "Size must be positive")
+    long size
+) {}
@@ -0,0 +1,22 @@
+package api.backend.model.media;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record UploadSessionResponse(
+        String id,
+        long size,
+        int chunkSize,
+        int chunkCount,
+        List<Integer> receivedChunks,
+        LocalDateTime expiresAt) {
+
+    public static UploadSessionResponse of(UploadSession session, List<Integer> receivedChunks) {
+        return new UploadSessionResponse(session.getId(),
+                session.getSize(),
+                session.getChunkSize(),
+                session.getChunkCount(),
+                receivedChunks,
+                session.getExpiresAt());
+    }
+}
@@ -0,0 +1,56 @@
+package api.backend.model.notification;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A notification that was stored but could not be pushed over WebSocket
+ * after all delivery attempts.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "notification_dead_letters")
+public class NotificationDeadLetter {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "notification_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Notification notification;
+
+    @Column(nullable = false)
+    private String recipientUsername;
+
+    @Column(nullable = false)
+    private String destination;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public NotificationDeadLetter(Notification notification, String recipientUsername, String destination,
+            int attempts, String error) {
+        this.notification = notification;
+        this.recipientUsername = recipientUsername;
+        this.destination = destination;
+        this.attempts = attempts;
+        this.error = error;
+    }
+}
@@ -0,0 +1,61 @@
+package api.backend.model.notification;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import api.backend.model.post.Post;
+import api.backend.model.user.User;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A committed post whose followers have not all been notified yet. It is
+ * written in the post's transaction and deleted once the last batch of
+ * notifications is stored; {@code afterRecipientId} is moved forward in the
+ * same transaction as each batch, so a fan-out cut short resumes where it
+ * stopped. A worker holds it while {@code claimedUntil} is in the future.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "notification_fanouts")
+public class NotificationFanOut {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Post post;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sender_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User sender;
+
+    @Column(nullable = false)
+    private long afterRecipientId = 0;
+
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(length = 36)
+    private String claimToken;
+
+    private LocalDateTime claimedUntil;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public NotificationFanOut(Post post, User sender) {
+        this.post = post;
+        this.sender = sender;
+    }
+}
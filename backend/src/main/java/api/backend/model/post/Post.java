@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -14,6 +15,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
@@ -28,7 +30,10 @@ import lombok.Setter;
 @Entity
 @Setter
 @Getter
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(name = "idx_posts_created_at", columnList = "created_at"),
+        @Index(name = "idx_posts_user_fanned_out", columnList = "user_id, fanned_out, id")
+})
 public class Post {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -58,14 +63,20 @@ public class Post {
 
     private boolean isHidden;
 
+    // Whether the post was pushed to its author's followers; the rest are pulled into feeds at read time
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean fannedOut;
+
+    // Written by CounterService in batched increments, never by entity updates
     @NotNull(message = "Likes count is required")
     @Min(value = 0, message = "Likes count cannot be negative")
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Integer likesCount = 0;
 
     @NotNull(message = "Comments count is required")
     @Min(value = 0, message = "Comments count cannot be negative")
-    @Column(nullable = false)
+    @Column(nullable = false, updatable = false)
     private Integer commentsCount = 0;
 
     @ManyToMany(fetch = FetchType.LAZY)
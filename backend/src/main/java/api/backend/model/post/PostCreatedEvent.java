@@ -0,0 +1,6 @@
+package api.backend.model.post;
+
+public record PostCreatedEvent(
+        Long postId,
+        Long authorId) {
+}
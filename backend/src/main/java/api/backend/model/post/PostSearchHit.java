@@ -0,0 +1,7 @@
+package api.backend.model.post;
+
+public interface PostSearchHit {
+    Long getId();
+
+    Float getRank();
+}
@@ -0,0 +1,11 @@
+package api.backend.model.post;
+
+import java.util.List;
+
+// nextRank and nextCursor are null on the last page
+public record PostSearchPage(
+    List<PostResponse> posts,
+    Float nextRank,
+    Long nextCursor
+) {
+}
@@ -19,6 +19,9 @@ import org.hibernate.annotations.OnDeleteAction;
 @Getter
 @Table(name = "reports", uniqueConstraints = {
         @UniqueConstraint(columnNames = { "reporter_id", "reported_id", "post_id" })
+}, indexes = {
+        @Index(name = "idx_reports_created_at", columnList = "created_at"),
+        @Index(name = "idx_reports_status_id", columnList = "status, id")
 })
 public class Report {
 
@@ -0,0 +1,101 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import api.backend.model.post.Post;
+import api.backend.model.user.User;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * All reports against one target, a post or a user's profile, folded into a
+ * single triage entry. Counts and times are maintained by
+ * {@code ReportService} as reports come in and get reviewed, and by
+ * {@code UserService} when a reporter is deleted along with their reports.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "report_groups", indexes = {
+        @Index(name = "idx_report_groups_target", columnList = "target_key", unique = true),
+        @Index(name = "idx_report_groups_triage", columnList = "status, priority, id"),
+        @Index(name = "idx_report_groups_reported", columnList = "reported_id")
+})
+public class ReportGroup {
+    // Newer reports outrank older ones once they are this many seconds apart per factor of ten in pending count
+    public static final double RECENCY_SECONDS = 45000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // "post:<id>" or "user:<id>", so reports on a profile have a unique key too
+    @Column(name = "target_key", nullable = false)
+    private String targetKey;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "reported_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User reported;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "post_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Post post;
+
+    @Column(nullable = false)
+    private int reportCount;
+
+    @Column(nullable = false)
+    private int pendingCount;
+
+    @Column(nullable = false)
+    private LocalDateTime firstReportedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime lastReportedAt;
+
+    /**
+     * log10(1 + pending reports) + last report time / {@link #RECENCY_SECONDS}:
+     * a target keeps rising while reports pile up and new targets start near
+     * the top.
+     */
+    @Column(nullable = false)
+    private double priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Report.Status status = Report.Status.PENDING;
+
+    private LocalDateTime reviewedAt;
+
+    public static String targetKey(Long postId, Long reportedId) {
+        return postId != null ? "post:" + postId : "user:" + reportedId;
+    }
+
+    public static double recency(LocalDateTime reportedAt) {
+        return reportedAt.toEpochSecond(ZoneOffset.UTC) / RECENCY_SECONDS;
+    }
+
+    public static double priority(int pendingCount, LocalDateTime lastReportedAt) {
+        return Math.log10(1 + pendingCount) + recency(lastReportedAt);
+    }
+}
@@ -0,0 +1,21 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+
+import api.backend.model.user.AdminUserResponse;
+
+public record ReportGroupResponse(
+        Long id,
+        String target,
+        Long postId,
+        String postTitle,
+        boolean postHidden,
+        AdminUserResponse reported,
+        int reportCount,
+        int pendingCount,
+        LocalDateTime firstReportedAt,
+        LocalDateTime lastReportedAt,
+        double priority,
+        String status,
+        LocalDateTime reviewedAt
+) {}
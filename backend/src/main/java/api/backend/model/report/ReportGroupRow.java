@@ -0,0 +1,31 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+
+/**
+ * One triage entry with the reported user and post columns flattened in.
+ */
+public record ReportGroupRow(
+        Long id,
+        Long postId,
+        String postTitle,
+        Boolean postHidden,
+        int reportCount,
+        int pendingCount,
+        LocalDateTime firstReportedAt,
+        LocalDateTime lastReportedAt,
+        double priority,
+        Report.Status status,
+        LocalDateTime reviewedAt,
+        Long reportedId,
+        String reportedFullName,
+        String reportedUsername,
+        String reportedEmail,
+        String reportedRole,
+        String reportedAvatar,
+        LocalDateTime reportedCreatedAt,
+        int reportedPostsCount,
+        int reportedFollowersCount,
+        int reportedFollowingCount,
+        LocalDateTime reportedBannedUntil) {
+}
@@ -0,0 +1,61 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import api.backend.model.media.Thumbnails;
+import api.backend.model.user.AdminUserResponse;
+import api.backend.model.user.UserResponse;
+
+/**
+ * One row of the moderation queue as read by a single projection, with the
+ * columns of the reporter and of the reported user flattened in.
+ */
+public record ReportRow(
+        Long id,
+        String reason,
+        Report.Status status,
+        LocalDateTime createdAt,
+        LocalDateTime reviewedAt,
+        Long postId,
+        Boolean postHidden,
+        Long reporterId,
+        String reporterFullName,
+        String reporterUsername,
+        String reporterEmail,
+        String reporterRole,
+        String reporterAvatar,
+        LocalDateTime reporterCreatedAt,
+        int reporterPostsCount,
+        int reporterFollowersCount,
+        int reporterFollowingCount,
+        Long reportedId,
+        String reportedFullName,
+        String reportedUsername,
+        String reportedEmail,
+        String reportedRole,
+        String reportedAvatar,
+        LocalDateTime reportedCreatedAt,
+        int reportedPostsCount,
+        int reportedFollowersCount,
+        int reportedFollowingCount,
+        LocalDateTime reportedBannedUntil) {
+
+    public ReportResponse toResponse(Set<Long> followed) {
+        return new ReportResponse(id,
+                new UserResponse(reporterId, reporterFullName, reporterUsername, reporterEmail, reporterRole,
+                        reporterAvatar, Thumbnails.urls(reporterAvatar), reporterCreatedAt, reporterPostsCount, reporterFollowersCount,
+                        reporterFollowingCount, followed.contains(reporterId)),
+                new AdminUserResponse(reportedId, reportedFullName, reportedUsername, reportedEmail, reportedRole,
+                        reportedAvatar, Thumbnails.urls(reportedAvatar), reportedCreatedAt, reportedPostsCount, reportedFollowersCount,
+                        reportedFollowingCount, followed.contains(reportedId),
+                        reportedBannedUntil != null && reportedBannedUntil.isAfter(LocalDateTime.now()),
+                        reportedBannedUntil),
+                reason,
+                status.toString(),
+                createdAt,
+                reviewedAt,
+                postId,
+                postHidden != null && postHidden);
+    }
+}
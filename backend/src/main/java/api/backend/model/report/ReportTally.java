@@ -0,0 +1,6 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+
+public record ReportTally(Report.Status status, LocalDateTime createdAt) {
+}
@@ -0,0 +1,7 @@
+package api.backend.model.report;
+
+import java.time.LocalDateTime;
+
+public record ReportTargetTally(Long postId, Long reportedId, long reportCount, long pendingCount,
+        LocalDateTime firstReportedAt, LocalDateTime lastReportedAt) {
+}
@@ -0,0 +1,53 @@
+package api.backend.model.stats;
+
+import java.time.LocalDate;
+
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Activity of one day for the admin charts. Signups, posts, comments and
+ * reports are recounted from their tables while the day is recent; likes and
+ * bans leave no timestamped rows behind, so they are added up as they happen.
+ */
+@Entity
+@Setter
+@Getter
+@NoArgsConstructor
+@Table(name = "daily_rollups")
+public class DailyRollup {
+    @Id
+    @Column(name = "stat_day")
+    private LocalDate day;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long signups;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long posts;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long comments;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long likes;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long reports;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long bans;
+}
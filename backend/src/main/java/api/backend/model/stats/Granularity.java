@@ -0,0 +1,24 @@
+package api.backend.model.stats;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+public enum Granularity {
+    DAY, WEEK, MONTH;
+
+    public LocalDate bucketOf(LocalDate day) {
+        return switch (this) {
+            case DAY -> day;
+            case WEEK -> day.with(DayOfWeek.MONDAY);
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    public LocalDate next(LocalDate bucket) {
+        return switch (this) {
+            case DAY -> bucket.plusDays(1);
+            case WEEK -> bucket.plusWeeks(1);
+            case MONTH -> bucket.plusMonths(1);
+        };
+    }
+}
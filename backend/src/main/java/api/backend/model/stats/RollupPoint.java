@@ -0,0 +1,13 @@
+package api.backend.model.stats;
+
+import java.time.LocalDate;
+
+public record RollupPoint(
+        LocalDate start,
+        long signups,
+        long posts,
+        long comments,
+        long likes,
+        long reports,
+        long bans) {
+}
@@ -0,0 +1,10 @@
+package api.backend.model.user;
+
+import java.time.LocalDateTime;
+
+public record AccountState(Long id, String role, LocalDateTime bannedUntil) {
+
+    public boolean isBanned() {
+        return bannedUntil != null && bannedUntil.isAfter(LocalDateTime.now());
+    }
+}
@@ -12,6 +12,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 import org.springframework.security.core.GrantedAuthority;
@@ -29,6 +30,8 @@ import api.backend.model.post.Post;
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "username"),
         @UniqueConstraint(columnNames = "email")
+}, indexes = {
+        @Index(name = "idx_users_created_at", columnList = "created_at")
 })
 public class User implements UserDetails {
     @Id
@@ -77,6 +80,19 @@ public class User implements UserDetails {
 
     private LocalDateTime deletedAt;
 
+    // Maintained by bulk UPDATE statements only, so entity flushes never overwrite a concurrent increment
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int postsCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int subscribersCount = 0;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private int subscriptionsCount = 0;
+
     @OnDelete(action = OnDeleteAction.CASCADE)
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Post> posts = new ArrayList<>();
@@ -1,6 +1,7 @@
 package api.backend.model.user;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 
 public record UserResponse(
         Long id,
@@ -9,6 +10,7 @@ public record UserResponse(
         String email,
         String role,
         String avatar,
+        Map<Integer, String> avatarThumbnails,
         LocalDateTime createdAt,
         int postsCount,
         int followersCount,
@@ -0,0 +1,9 @@
+package api.backend.model.user;
+
+public record UserSuggestion(Long id, String username, String fullName, String avatar, int followersCount) {
+
+    public static UserSuggestion of(User user) {
+        return new UserSuggestion(user.getId(), user.getUsername(), user.getFullName(), user.getAvatar(),
+                user.getSubscribersCount());
+    }
+}
@@ -4,14 +4,70 @@ import api.backend.model.comment.Comment;
 
 import java.util.List;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    Page<Comment> findByParentIdAndIdLessThan(Long parentId, Long cursor, Pageable pageable);
+    // Cursor pages: a Slice skips the count query, and the authors come in the same select
+    @EntityGraph(attributePaths = "user")
+    Slice<Comment> findByParentIdAndIdLessThan(Long parentId, Long cursor, Pageable pageable);
     List<Comment> findByParentId(Long parentId);
     
-    Page<Comment> findByPostIdAndParentIsNullAndIdLessThan(Long postId, Long cursor, Pageable pageable);
+    @EntityGraph(attributePaths = "user")
+    Slice<Comment> findByPostIdAndParentIsNullAndIdLessThan(Long postId, Long cursor, Pageable pageable);
+
+    // Paths are digits and slashes, so under "C" ordering a subtree is the range [path, path || '~')
+    @Query(value = "SELECT COUNT(*) FROM comments WHERE post_id = :postId "
+            + "AND path COLLATE \"C\" >= :path AND path COLLATE \"C\" < :path || '~'", nativeQuery = true)
+    long countSubtree(@Param("postId") long postId, @Param("path") String path);
+
+    /**
+     * A page of top-level comments, newest first, together with the first
+     * {@code replies} comments of each one's subtree in thread order. The
+     * subtree is a byte-order range, so each root is one range scan of
+     * {@code idx_comments_post_path_c} rather than a filter over the post's comments.
+     */
+    @Query(value = "WITH top AS (SELECT * FROM comments WHERE post_id = :postId AND parent_id IS NULL AND id < :cursor "
+            + "ORDER BY id DESC LIMIT :size) "
+            + "SELECT * FROM top "
+            + "UNION ALL "
+            + "SELECT r.* FROM top t CROSS JOIN LATERAL (SELECT * FROM comments c WHERE c.post_id = t.post_id "
+            + "AND c.path COLLATE \"C\" > t.path AND c.path COLLATE \"C\" < t.path || '~' "
+            + "ORDER BY c.path COLLATE \"C\" LIMIT :replies) r", nativeQuery = true)
+    List<Comment> findThread(@Param("postId") long postId, @Param("cursor") long cursor, @Param("size") int size,
+            @Param("replies") int replies);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Comment c SET c.path = CONCAT(pad(cast(c.id as String) with 19 leading '0'), '/'), c.depth = 0 "
+            + "WHERE c.parent IS NULL AND c.path IS NULL")
+    int backfillRootPaths();
+
+    // Fills one more level per call, so it is repeated until nothing changes
+    @Transactional
+    @Modifying
+    @Query("UPDATE Comment c SET "
+            + "c.path = CONCAT((SELECT p.path FROM Comment p WHERE p.id = c.parent.id), pad(cast(c.id as String) with 19 leading '0'), '/'), "
+            + "c.depth = (SELECT p.depth + 1 FROM Comment p WHERE p.id = c.parent.id) "
+            + "WHERE c.path IS NULL AND EXISTS (SELECT 1 FROM Comment p WHERE p.id = c.parent.id AND p.path IS NOT NULL)")
+    int backfillReplyPaths();
+
+    @Query("SELECT COUNT(c) FROM Comment c WHERE c.likesCount <> (SELECT COUNT(l) FROM CommentLike l WHERE l.comment = c) "
+            + "OR c.repliesCount <> (SELECT COUNT(r) FROM Comment r WHERE r.parent = c)")
+    long countCommentsWithCounterDrift();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Comment c SET c.likesCount = (SELECT COUNT(l) FROM CommentLike l WHERE l.comment = c), "
+            + "c.repliesCount = (SELECT COUNT(r) FROM Comment r WHERE r.parent = c) "
+            + "WHERE c.likesCount <> (SELECT COUNT(l) FROM CommentLike l WHERE l.comment = c) "
+            + "OR c.repliesCount <> (SELECT COUNT(r) FROM Comment r WHERE r.parent = c)")
+    int reconcileCounters();
 
 }
\ No newline at end of file
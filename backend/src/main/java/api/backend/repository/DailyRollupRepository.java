@@ -0,0 +1,19 @@
+package api.backend.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import api.backend.model.stats.DailyRollup;
+
+@Repository
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, LocalDate> {
+
+    List<DailyRollup> findByDayBetweenOrderByDay(LocalDate from, LocalDate to);
+
+    @Query("SELECT MAX(r.day) FROM DailyRollup r")
+    LocalDate findLatestDay();
+}
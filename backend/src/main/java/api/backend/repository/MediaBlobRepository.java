@@ -0,0 +1,61 @@
+package api.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.backend.model.media.MediaBlob;
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    // Held until the caller's transaction ends; the row and its file change together under it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM MediaBlob b WHERE b.sha256 = :sha256")
+    Optional<MediaBlob> lockBySha256(@Param("sha256") String sha256);
+
+    // Starts unreferenced, so it is collected if the reference it was put for never commits
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO media_blobs (sha256, extension, byte_size, ref_count, created_at, unreferenced_since) "
+            + "VALUES (:sha256, :extension, :size, 0, :createdAt, :createdAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("sha256") String sha256, @Param("extension") String extension,
+            @Param("size") long size, @Param("createdAt") LocalDateTime createdAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.unreferencedSince = :now WHERE b.sha256 = :sha256 AND b.refCount = 0")
+    int touchIfUnreferenced(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount + 1, b.unreferencedSince = null WHERE b.sha256 = :sha256")
+    int retain(@Param("sha256") String sha256);
+
+    // The right-hand side sees the old refCount, so 1 means this was the last reference
+    @Transactional
+    @Modifying
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount - 1, "
+            + "b.unreferencedSince = CASE WHEN b.refCount = 1 THEN :now ELSE b.unreferencedSince END "
+            + "WHERE b.sha256 = :sha256 AND b.refCount > 0")
+    int release(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    @Query("SELECT b FROM MediaBlob b WHERE b.refCount = 0 AND b.unreferencedSince < :cutoff ORDER BY b.unreferencedSince")
+    List<MediaBlob> findCollectable(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+
+    // Rechecked on delete, in case the blob was retained again since it was listed
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM MediaBlob b WHERE b.sha256 = :sha256 AND b.refCount = 0 AND b.unreferencedSince < :cutoff")
+    int deleteIfCollectable(@Param("sha256") String sha256, @Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,28 @@
+package api.backend.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import api.backend.model.media.MediaUpload;
+
+@Repository
+public interface MediaUploadRepository extends JpaRepository<MediaUpload, Long> {
+
+    Optional<MediaUpload> findByIdAndOwnerId(long id, long ownerId);
+
+    // The owner is needed to notify them once the upload is done, after the session is gone
+    @Query("SELECT m FROM MediaUpload m JOIN FETCH m.owner WHERE m.id = :id")
+    Optional<MediaUpload> findWithOwnerById(@Param("id") long id);
+
+    List<MediaUpload> findByNodeAndStatus(String node, MediaUpload.Status status);
+
+    @Query("SELECT m.id FROM MediaUpload m WHERE m.node = :node AND m.status = :status ORDER BY m.id")
+    List<Long> findIdsByNodeAndStatus(@Param("node") String node, @Param("status") MediaUpload.Status status,
+            Pageable pageable);
+}
@@ -0,0 +1,8 @@
+package api.backend.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import api.backend.model.notification.NotificationDeadLetter;
+
+public interface NotificationDeadLetterRepository extends JpaRepository<NotificationDeadLetter, Long> {
+}
@@ -0,0 +1,40 @@
+package api.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.backend.model.notification.NotificationFanOut;
+
+public interface NotificationFanOutRepository extends JpaRepository<NotificationFanOut, Long> {
+
+    @Query("SELECT f.id FROM NotificationFanOut f WHERE f.claimedUntil IS NULL OR f.claimedUntil < :now ORDER BY f.id")
+    List<Long> findClaimableIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // 0 when another worker holds an unexpired claim
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationFanOut f SET f.claimToken = :token, f.claimedUntil = :until, f.attempts = f.attempts + 1 "
+            + "WHERE f.id = :id AND (f.claimedUntil IS NULL OR f.claimedUntil < :now)")
+    int claim(@Param("id") long id, @Param("token") String token, @Param("now") LocalDateTime now,
+            @Param("until") LocalDateTime until);
+
+    // 0 when the claim expired and was taken over, so the batch it commits with must roll back
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationFanOut f SET f.afterRecipientId = :after, f.claimedUntil = :until "
+            + "WHERE f.id = :id AND f.claimToken = :token")
+    int advance(@Param("id") long id, @Param("token") String token, @Param("after") long after,
+            @Param("until") LocalDateTime until);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE NotificationFanOut f SET f.claimToken = NULL, f.claimedUntil = NULL WHERE f.id = :id AND f.claimToken = :token")
+    int release(@Param("id") long id, @Param("token") String token);
+}
@@ -3,15 +3,19 @@ package api.backend.repository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import api.backend.model.post.Post;
+import api.backend.model.post.PostSearchHit;
 import api.backend.model.user.User;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -33,9 +37,61 @@ public interface PostRepository extends JpaRepository<Post, Long> {
 
     List<Post> findByCommentsCountGreaterThanEqual(Integer commentsCount);
 
-    @Query("SELECT p FROM Post p WHERE p.user IN :subscribedTo AND p.isHidden = false AND p.id < :cursor")
-    Page<Post> findPostsBySubscribedTo(@Param("subscribedTo") Set<User> subscribedTo, @Param("cursor") long cursor, Pageable page);
+    @Query("SELECT p FROM Post p WHERE p.user IN (SELECT a FROM User u JOIN u.subscribedTo a WHERE u.id = :userId) AND p.fannedOut = false AND p.isHidden = false AND p.id < :cursor ORDER BY p.id DESC")
+    List<Post> findNotFannedOutFeed(@Param("userId") long userId, @Param("cursor") long cursor, Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Post p SET p.fannedOut = true WHERE p.fannedOut = false AND p.user IN (SELECT a FROM User a WHERE a.subscribersCount <= :threshold)")
+    int markFannedOutBelow(@Param("threshold") int threshold);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Post p SET p.fannedOut = true WHERE p.fannedOut = false AND EXISTS (SELECT 1 FROM TimelineEntry t WHERE t.post = p)")
+    int markFannedOutFromTimelines();
 
     long countByCreatedAtAfter(LocalDateTime date);
 
+    // posts.search_vector is a generated column created by PostSearchService, not mapped on the entity
+    @Query(value = "SELECT p.id AS id, ts_rank(p.search_vector, q) AS rank "
+            + "FROM posts p, websearch_to_tsquery(CAST(:language AS regconfig), :query) q "
+            + "WHERE p.search_vector @@ q AND p.is_hidden = false "
+            + "ORDER BY rank DESC, p.id DESC LIMIT :size", nativeQuery = true)
+    List<PostSearchHit> search(@Param("language") String language, @Param("query") String query,
+            @Param("size") int size);
+
+    @Query(value = "SELECT p.id AS id, ts_rank(p.search_vector, q) AS rank "
+            + "FROM posts p, websearch_to_tsquery(CAST(:language AS regconfig), :query) q "
+            + "WHERE p.search_vector @@ q AND p.is_hidden = false "
+            + "AND (ts_rank(p.search_vector, q), p.id) < (CAST(:rank AS real), :cursor) "
+            + "ORDER BY rank DESC, p.id DESC LIMIT :size", nativeQuery = true)
+    List<PostSearchHit> searchAfter(@Param("language") String language, @Param("query") String query,
+            @Param("rank") float rank, @Param("cursor") long cursor, @Param("size") int size);
+
+    // Each returns the number of rows changed, which tells the caller whether the toggle took effect
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO posts_likes (liked_posts_id, likes_id) VALUES (:postId, :userId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertLike(@Param("postId") long postId, @Param("userId") long userId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM posts_likes WHERE liked_posts_id = :postId AND likes_id = :userId", nativeQuery = true)
+    int deleteLike(@Param("postId") long postId, @Param("userId") long userId);
+
+    @Query("SELECT COUNT(p) FROM Post p WHERE p.likesCount <> (SELECT COUNT(u) FROM Post x JOIN x.likes u WHERE x = p) "
+            + "OR p.commentsCount <> (SELECT COUNT(c) FROM Comment c WHERE c.post = p)")
+    long countPostsWithCounterDrift();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Post p SET p.likesCount = (SELECT COUNT(u) FROM Post x JOIN x.likes u WHERE x = p), "
+            + "p.commentsCount = (SELECT COUNT(c) FROM Comment c WHERE c.post = p) "
+            + "WHERE p.likesCount <> (SELECT COUNT(u) FROM Post x JOIN x.likes u WHERE x = p) "
+            + "OR p.commentsCount <> (SELECT COUNT(c) FROM Comment c WHERE c.post = p)")
+    int reconcileCounters();
+
+    @Query("SELECT p.id FROM Post p JOIN p.likes u WHERE u.id = :userId AND p.id IN :postIds")
+    Set<Long> findLikedPostIds(@Param("userId") long userId, @Param("postIds") Collection<Long> postIds);
+
 }
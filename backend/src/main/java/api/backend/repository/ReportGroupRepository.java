@@ -0,0 +1,107 @@
+package api.backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportGroup;
+import api.backend.model.report.ReportGroupRow;
+import api.backend.model.user.UserReportSummary;
+
+@Repository
+public interface ReportGroupRepository extends JpaRepository<ReportGroup, Long> {
+
+    String SELECT_ROW = "SELECT new api.backend.model.report.ReportGroupRow(g.id, p.id, p.title, p.isHidden, g.reportCount, g.pendingCount, "
+            + "g.firstReportedAt, g.lastReportedAt, g.priority, g.status, g.reviewedAt, "
+            + "b.id, b.fullName, b.username, b.email, b.role, b.avatar, b.createdAt, b.postsCount, b.subscribersCount, b.subscriptionsCount, b.bannedUntil) "
+            + "FROM ReportGroup g JOIN g.reported b LEFT JOIN g.post p ";
+
+    Optional<ReportGroup> findByTargetKey(String targetKey);
+
+    // Paired with addReport; together they upsert without a read-modify-write race
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO report_groups (target_key, reported_id, post_id, report_count, pending_count, "
+            + "first_reported_at, last_reported_at, priority, status) "
+            + "VALUES (:targetKey, :reportedId, :postId, 0, 0, :reportedAt, :reportedAt, 0, 'PENDING') ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("targetKey") String targetKey, @Param("reportedId") long reportedId,
+            @Param("postId") Long postId, @Param("reportedAt") LocalDateTime reportedAt);
+
+    // Right-hand sides see the old pendingCount, so + 2 is log10(1 + the new count)
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportGroup g SET g.reportCount = g.reportCount + 1, g.pendingCount = g.pendingCount + 1, "
+            + "g.lastReportedAt = :reportedAt, g.priority = log10(g.pendingCount + 2) + :recency, "
+            + "g.status = api.backend.model.report.Report.Status.PENDING, g.reviewedAt = null "
+            + "WHERE g.targetKey = :targetKey")
+    int addReport(@Param("targetKey") String targetKey, @Param("reportedAt") LocalDateTime reportedAt,
+            @Param("recency") double recency);
+
+    // One pending report of the group was reviewed on its own
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportGroup g SET g.priority = g.priority - log10(g.pendingCount + 1) + log10(g.pendingCount), "
+            + "g.pendingCount = g.pendingCount - 1, "
+            + "g.status = CASE WHEN g.pendingCount <= 1 THEN :status ELSE g.status END, "
+            + "g.reviewedAt = CASE WHEN g.pendingCount <= 1 THEN :reviewedAt ELSE g.reviewedAt END "
+            + "WHERE g.targetKey = :targetKey AND g.pendingCount > 0")
+    int reviewOne(@Param("targetKey") String targetKey, @Param("status") Report.Status status,
+            @Param("reviewedAt") LocalDateTime reviewedAt);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportGroup g SET g.priority = g.priority - log10(g.pendingCount + 1), g.pendingCount = 0, "
+            + "g.status = :status, g.reviewedAt = :reviewedAt WHERE g.id = :id")
+    int reviewAll(@Param("id") long id, @Param("status") Report.Status status,
+            @Param("reviewedAt") LocalDateTime reviewedAt);
+
+    // The reports of one reporter that count towards group g
+    String REPORTS_BY = "(SELECT COUNT(r) FROM Report r WHERE r.reporter.id = :reporterId "
+            + "AND (r.post = g.post OR (g.post IS NULL AND r.post IS NULL AND r.reported = g.reported))";
+    String PENDING_BY = REPORTS_BY + " AND r.status = api.backend.model.report.Report.Status.PENDING)";
+
+    /**
+     * Takes a reporter's reports out of the counts of every group they are in,
+     * before the reporter is deleted and the reports cascade away. A group
+     * left with no pending reports counts as resolved; times are kept.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ReportGroup g SET g.priority = g.priority - log10(g.pendingCount + 1) + log10(g.pendingCount + 1 - " + PENDING_BY + "), "
+            + "g.reportCount = g.reportCount - " + REPORTS_BY + "), "
+            + "g.pendingCount = g.pendingCount - " + PENDING_BY + ", "
+            + "g.status = CASE WHEN g.pendingCount > 0 AND g.pendingCount = " + PENDING_BY
+            + " THEN api.backend.model.report.Report.Status.RESOLVED ELSE g.status END, "
+            + "g.reviewedAt = CASE WHEN g.pendingCount > 0 AND g.pendingCount = " + PENDING_BY + " THEN :now ELSE g.reviewedAt END "
+            + "WHERE EXISTS (SELECT r FROM Report r WHERE r.reporter.id = :reporterId "
+            + "AND (r.post = g.post OR (g.post IS NULL AND r.post IS NULL AND r.reported = g.reported)))")
+    int withdrawReportsOf(@Param("reporterId") long reporterId, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReportGroup g WHERE g.reportCount <= 0")
+    int deleteEmpty();
+
+    @Query(SELECT_ROW + "WHERE g.status = :status "
+            + "AND (g.priority < :priority OR (g.priority = :priority AND g.id < :cursor)) "
+            + "ORDER BY g.priority DESC, g.id DESC")
+    List<ReportGroupRow> findTriage(@Param("status") Report.Status status, @Param("priority") double priority,
+            @Param("cursor") long cursor, Pageable pageable);
+
+    @Query(SELECT_ROW + "WHERE g.id = :id")
+    Optional<ReportGroupRow> findRowById(@Param("id") long id);
+
+    // Sums the per-target counts, so it groups the much smaller report_groups table instead of every report
+    @Query("SELECT new api.backend.model.user.UserReportSummary(b.id, b.username, b.fullName, b.avatar, SUM(g.reportCount), MAX(g.lastReportedAt)) "
+            + "FROM ReportGroup g JOIN g.reported b GROUP BY b.id, b.username, b.fullName, b.avatar ORDER BY SUM(g.reportCount) DESC")
+    List<UserReportSummary> findMostReportedUsers(Pageable pageable);
+}
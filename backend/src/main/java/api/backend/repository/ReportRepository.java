@@ -9,13 +9,24 @@ import org.springframework.data.domain.Pageable;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import org.springframework.data.jpa.repository.Modifying;
+
 import org.springframework.data.jpa.repository.Query;
 
+import org.springframework.data.repository.query.Param;
+
+import org.springframework.transaction.annotation.Transactional;
+
 
 
 import api.backend.model.report.Report;
 
-import api.backend.model.user.UserReportSummary;
+import api.backend.model.report.ReportRow;
+
+import api.backend.model.report.ReportTally;
+
+import api.backend.model.report.ReportTargetTally;
+
 
 
 
@@ -23,16 +34,60 @@ import java.time.LocalDateTime;
 
 import java.util.List;
 
+import java.util.Optional;
+
 
 
 public interface ReportRepository extends JpaRepository<Report, Long> {
 
 
 
+    String SELECT_ROW = "SELECT new api.backend.model.report.ReportRow(r.id, r.reason, r.status, r.createdAt, r.reviewedAt, p.id, p.isHidden, "
+            + "a.id, a.fullName, a.username, a.email, a.role, a.avatar, a.createdAt, a.postsCount, a.subscribersCount, a.subscriptionsCount, "
+            + "b.id, b.fullName, b.username, b.email, b.role, b.avatar, b.createdAt, b.postsCount, b.subscribersCount, b.subscriptionsCount, b.bannedUntil) "
+            + "FROM Report r JOIN r.reporter a JOIN r.reported b LEFT JOIN r.post p ";
+
+
+
     Page<Report> findAllByIdLessThan(Long cursor, Pageable pageable);
 
 
 
+    // target is "all", "post" for reports on a post or "user" for reports on a profile
+    @Query(SELECT_ROW + "WHERE r.id < :cursor "
+            + "AND (:status IS NULL OR r.status = :status) "
+            + "AND (:target = 'all' OR (:target = 'post' AND p.id IS NOT NULL) OR (:target = 'user' AND p.id IS NULL)) "
+            + "AND (:reportedId IS NULL OR b.id = :reportedId) "
+            + "ORDER BY r.id DESC")
+    List<ReportRow> findQueue(@Param("cursor") long cursor, @Param("status") Report.Status status,
+            @Param("target") String target, @Param("reportedId") Long reportedId, Pageable pageable);
+
+
+
+    @Query(SELECT_ROW + "WHERE r.id = :id")
+    Optional<ReportRow> findRowById(@Param("id") long id);
+
+
+
+    // A post's reports are one target however their reported user was recorded, so its author stands in for it
+    @Query("SELECT new api.backend.model.report.ReportTargetTally(p.id, COALESCE(a.id, b.id), COUNT(r), "
+            + "SUM(CASE WHEN r.status = api.backend.model.report.Report.Status.PENDING THEN 1 ELSE 0 END), MIN(r.createdAt), MAX(r.createdAt)) "
+            + "FROM Report r JOIN r.reported b LEFT JOIN r.post p LEFT JOIN p.user a GROUP BY p.id, COALESCE(a.id, b.id)")
+    List<ReportTargetTally> findTargetTallies();
+
+
+
+    // Reports on a post, or on the user's profile when postId is null
+    @Transactional
+    @Modifying
+    @Query("UPDATE Report r SET r.status = :status, r.reviewedAt = :reviewedAt "
+            + "WHERE r.status = api.backend.model.report.Report.Status.PENDING "
+            + "AND ((:postId IS NOT NULL AND r.post.id = :postId) OR (:postId IS NULL AND r.post IS NULL AND r.reported.id = :reportedId))")
+    int reviewPendingForTarget(@Param("postId") Long postId, @Param("reportedId") long reportedId,
+            @Param("status") Report.Status status, @Param("reviewedAt") LocalDateTime reviewedAt);
+
+
+
     long countByCreatedAtAfter(LocalDateTime date);
 
 
@@ -41,8 +96,11 @@ public interface ReportRepository extends JpaRepository<Report, Long> {
 
 
 
-    @Query("SELECT new api.backend.model.user.UserReportSummary(r.reported.id, r.reported.username, r.reported.fullName, r.reported.avatar, COUNT(r), MAX(r.createdAt)) FROM Report r GROUP BY r.reported.id, r.reported.username, r.reported.fullName, r.reported.avatar ORDER BY COUNT(r) DESC")
-    List<UserReportSummary> findMostReportedUsers(Pageable pageable);
+    @Query("SELECT new api.backend.model.report.ReportTally(r.status, r.createdAt) FROM Report r WHERE r.post.id = :postId")
+    List<ReportTally> findTalliesByPostId(@Param("postId") long postId);
+
+
+
 
 
 
@@ -0,0 +1,42 @@
+package api.backend.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.backend.model.post.Post;
+import api.backend.model.timeline.TimelineEntry;
+
+public interface TimelineRepository extends JpaRepository<TimelineEntry, Long> {
+
+    @Query("SELECT t.post FROM TimelineEntry t WHERE t.user.id = :userId AND t.post.id < :cursor AND t.post.isHidden = false ORDER BY t.post.id DESC")
+    List<Post> findFeed(@Param("userId") long userId, @Param("cursor") long cursor, Pageable pageable);
+
+    Optional<TimelineEntry> findFirstByOrderByIdAsc();
+
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO TimelineEntry (user, post, author, createdAt) SELECT f, p, a, p.createdAt FROM Post p JOIN p.user a JOIN a.subscribers f WHERE p.id = :postId")
+    int fanOut(@Param("postId") long postId);
+
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO TimelineEntry (user, post, author, createdAt) SELECT f, p, p.user, p.createdAt FROM User f, Post p WHERE f.id = :followerId AND p.user.id = :authorId AND p.fannedOut = true AND NOT EXISTS (SELECT 1 FROM TimelineEntry t WHERE t.user = f AND t.post = p)")
+    int backfillAuthor(@Param("followerId") long followerId, @Param("authorId") long authorId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE t.user.id = :followerId AND t.author.id = :authorId")
+    int removeAuthor(@Param("followerId") long followerId, @Param("authorId") long authorId);
+
+    @Transactional
+    @Modifying
+    @Query("INSERT INTO TimelineEntry (user, post, author, createdAt) SELECT f, p, a, p.createdAt FROM Post p JOIN p.user a JOIN a.subscribers f WHERE p.fannedOut = true")
+    int rebuild();
+}
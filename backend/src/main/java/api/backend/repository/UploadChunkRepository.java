@@ -0,0 +1,33 @@
+package api.backend.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import api.backend.model.media.UploadChunk;
+
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    // Chunks of one session arrive in parallel, so each is its own row
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO upload_chunks (session_id, chunk_index, sha256) "
+            + "VALUES (:sessionId, :chunkIndex, :sha256) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("sessionId") String sessionId, @Param("chunkIndex") int chunkIndex,
+            @Param("sha256") String sha256);
+
+    @Query("SELECT c.sha256 FROM UploadChunk c WHERE c.session.id = :sessionId AND c.chunkIndex = :chunkIndex")
+    Optional<String> findChecksum(@Param("sessionId") String sessionId, @Param("chunkIndex") int chunkIndex);
+
+    @Query("SELECT c.chunkIndex FROM UploadChunk c WHERE c.session.id = :sessionId ORDER BY c.chunkIndex")
+    List<Integer> findIndexes(@Param("sessionId") String sessionId);
+
+    long countBySessionId(String sessionId);
+}
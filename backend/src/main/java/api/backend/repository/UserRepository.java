@@ -1,13 +1,23 @@
 package api.backend.repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import api.backend.model.user.AccountState;
 import api.backend.model.user.User;
+import api.backend.model.user.UserSuggestion;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -24,8 +34,67 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Page<User> findAllBySubscribersIdAndIdLessThan(Long userId, Long cursor, Pageable pageable);
 
-    Page<User> findByIdLessThanAndFullNameContainingIgnoreCaseOrUsernameContainingIgnoreCase(
-             Long cursor ,String fullNameQuery, String usernameQuery, Pageable pageable
-    );
+    @Query("SELECT u FROM User u WHERE u.id < :cursor AND (LOWER(u.fullName) LIKE LOWER(CONCAT('%', :query, '%')) "
+            + "OR LOWER(u.username) LIKE LOWER(CONCAT('%', :query, '%')))")
+    Page<User> searchByIdLessThan(@Param("cursor") long cursor, @Param("query") String query, Pageable pageable);
+
+    @Query("SELECT new api.backend.model.user.UserSuggestion(u.id, u.username, u.fullName, u.avatar, u.subscribersCount) FROM User u")
+    List<UserSuggestion> findAllSuggestions();
+
+    @Query("SELECT new api.backend.model.user.AccountState(u.id, u.role, u.bannedUntil) FROM User u WHERE u.id = :userId")
+    Optional<AccountState> findAccountStateById(@Param("userId") long userId);
+
+    @Query("SELECT new api.backend.model.user.AccountState(u.id, u.role, u.bannedUntil) FROM User u WHERE u.bannedUntil > :now")
+    List<AccountState> findBannedAccountStates(@Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT u.avatar FROM User u WHERE u.avatar LIKE 'images/%'")
+    List<String> findLocalAvatars();
+
+    @Query("SELECT u.subscribersCount FROM User u WHERE u.id = :userId")
+    int countSubscribers(@Param("userId") long userId);
+
+    @Query("SELECT a.id FROM User u JOIN u.subscribedTo a WHERE u.id = :userId AND a.id IN :ids")
+    Set<Long> findSubscribedToIdsIn(@Param("userId") long userId, @Param("ids") Collection<Long> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.postsCount = u.postsCount + :delta WHERE u.id = :userId")
+    void incrementPostsCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.subscribersCount = u.subscribersCount + :delta WHERE u.id = :userId")
+    void incrementSubscribersCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.subscriptionsCount = u.subscriptionsCount + :delta WHERE u.id = :userId")
+    void incrementSubscriptionsCount(@Param("userId") long userId, @Param("delta") int delta);
+
+    // Run before deleting a user so the people on both sides of their subscriptions keep correct counts
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.subscribersCount = u.subscribersCount - 1 WHERE u IN (SELECT a FROM User x JOIN x.subscribedTo a WHERE x.id = :userId)")
+    void decrementSubscribersCountOfSubscriptions(@Param("userId") long userId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.subscriptionsCount = u.subscriptionsCount - 1 WHERE u IN (SELECT s FROM User x JOIN x.subscribers s WHERE x.id = :userId)")
+    void decrementSubscriptionsCountOfSubscribers(@Param("userId") long userId);
+
+    @Query("SELECT COUNT(u) FROM User u WHERE u.postsCount <> (SELECT COUNT(p) FROM Post p WHERE p.user = u) "
+            + "OR u.subscribersCount <> (SELECT COUNT(s) FROM User x JOIN x.subscribers s WHERE x = u) "
+            + "OR u.subscriptionsCount <> (SELECT COUNT(a) FROM User x JOIN x.subscribedTo a WHERE x = u)")
+    long countUsersWithCounterDrift();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.postsCount = (SELECT COUNT(p) FROM Post p WHERE p.user = u), "
+            + "u.subscribersCount = (SELECT COUNT(s) FROM User x JOIN x.subscribers s WHERE x = u), "
+            + "u.subscriptionsCount = (SELECT COUNT(a) FROM User x JOIN x.subscribedTo a WHERE x = u) "
+            + "WHERE u.postsCount <> (SELECT COUNT(p) FROM Post p WHERE p.user = u) "
+            + "OR u.subscribersCount <> (SELECT COUNT(s) FROM User x JOIN x.subscribers s WHERE x = u) "
+            + "OR u.subscriptionsCount <> (SELECT COUNT(a) FROM User x JOIN x.subscribedTo a WHERE x = u)")
+    int reconcileCounters();
 
 }
@@ -2,9 +2,29 @@ package api.backend.repository.like;
 
 import api.backend.model.like.CommentLike;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 
 public interface CommentLikeRepository extends JpaRepository<CommentLike, Long> {
     Optional<CommentLike> findByCommentIdAndUserId(Long commentId, Long userId);
+
+    // Answered from the unique (user_id, comment_id) index without touching the table
+    @Query("SELECT l.comment.id FROM CommentLike l WHERE l.user.id = :userId AND l.comment.id IN :commentIds")
+    Set<Long> findLikedCommentIds(@Param("userId") long userId, @Param("commentIds") Collection<Long> commentIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO comment_likes (user_id, comment_id) VALUES (:userId, :commentId) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertLike(@Param("commentId") long commentId, @Param("userId") long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CommentLike l WHERE l.comment.id = :commentId AND l.user.id = :userId")
+    int deleteLike(@Param("commentId") long commentId, @Param("userId") long userId);
 }
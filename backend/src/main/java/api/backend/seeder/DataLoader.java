@@ -107,12 +107,6 @@ public class DataLoader implements CommandLineRunner {
                             faker.leagueOfLegends().quote(),
                             topLevelComment);
                     commentRepository.save(reply);
-                    
-                    topLevelComment.setRepliesCount(topLevelComment.getRepliesCount() + 1);
-                    commentRepository.save(topLevelComment);
-
-                    post.setCommentsCount(post.getCommentsCount() + 1);
-                    postRepository.save(post);
                 });
             });
         });
@@ -0,0 +1,128 @@
+package api.backend.seeder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import net.datafaker.Faker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import api.backend.model.user.User;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+import api.backend.service.PostSearchService;
+
+/**
+ * Grows the posts table to {@code app.search.benchmark.posts} rows of random
+ * text and times post search against it. Only active with the
+ * {@code search-benchmark} profile, e.g.
+ * {@code mvn spring-boot:run -Dspring-boot.run.profiles=search-benchmark}.
+ */
+@Component
+@Profile("search-benchmark")
+public class SearchBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SearchBenchmark.class);
+
+    private static final int BATCH = 50_000;
+
+    // Squaring a uniform draw skews picks towards the start of the vocabulary, so some words are common and most are rare
+    private static final String INSERT_POSTS = "INSERT INTO posts (user_id, title, content, created_at, is_hidden, likes_count, comments_count) "
+            + "SELECT ?, t.title, t.content, now(), random() < 0.02, 0, 0 FROM generate_series(1, ?) g, "
+            + "LATERAL (SELECT "
+            + "(SELECT string_agg(w[1 + floor(power(random(), 2) * cardinality(w))::int], ' ') FROM generate_series(1, 6 + g % 2)) AS title, "
+            + "(SELECT string_agg(w[1 + floor(power(random(), 2) * cardinality(w))::int], ' ') FROM generate_series(1, 60 + g % 2)) AS content "
+            + "FROM (SELECT string_to_array(?, ' ') AS w) v) t";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final PostSearchService postSearchService;
+    private final String language;
+    private final int targetPosts;
+    private final int queries;
+
+    public SearchBenchmark(JdbcTemplate jdbcTemplate, UserRepository userRepository, PostRepository postRepository,
+            PostSearchService postSearchService, @Value("${app.search.language}") String language,
+            @Value("${app.search.benchmark.posts:1000000}") int targetPosts,
+            @Value("${app.search.benchmark.queries:200}") int queries) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.postSearchService = postSearchService;
+        this.language = language;
+        this.targetPosts = targetPosts;
+        this.queries = queries;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void run() {
+        // Listeners of the same event run in no guaranteed order, so the column and index are not assumed to exist yet
+        postSearchService.ensureSearchIndex();
+
+        Faker faker = new Faker(new Random(42));
+        List<String> vocabulary = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            vocabulary.add(faker.lorem().word() + (i % 7 == 0 ? "" : faker.lorem().word()));
+        }
+        String words = String.join(" ", vocabulary);
+
+        User author = userRepository.findByUsername("admin").orElseThrow();
+        long existing = postRepository.count();
+        long started = System.nanoTime();
+        for (long missing = targetPosts - existing; missing > 0; missing -= BATCH) {
+            jdbcTemplate.update(INSERT_POSTS, author.getId(), (int) Math.min(BATCH, missing), words);
+        }
+        if (existing < targetPosts) {
+            jdbcTemplate.execute("ANALYZE posts");
+            userRepository.reconcileCounters();
+            logger.info("Seeded {} posts in {} s", targetPosts - existing, (System.nanoTime() - started) / 1_000_000_000);
+        }
+
+        Random random = new Random(7);
+        long[] firstPage = new long[queries];
+        long[] nextPage = new long[queries];
+        for (int i = 0; i < queries; i++) {
+            // Alternate between frequent and rare terms, and one- and two-word queries
+            String query = vocabulary.get(pick(random, vocabulary.size(), i % 2 == 0));
+            if (i % 3 == 0) {
+                query += " " + vocabulary.get(pick(random, vocabulary.size(), false));
+            }
+
+            long t0 = System.nanoTime();
+            var hits = postRepository.search(language, query, 10);
+            firstPage[i] = System.nanoTime() - t0;
+            if (hits.size() == 10) {
+                var last = hits.get(9);
+                t0 = System.nanoTime();
+                postRepository.searchAfter(language, query, last.getRank(), last.getId(), 10);
+                nextPage[i] = System.nanoTime() - t0;
+            }
+        }
+        logger.info("Post search over {} posts, {} queries: first page {}, next page {}",
+                postRepository.count(), queries, percentiles(firstPage), percentiles(nextPage));
+    }
+
+    private static int pick(Random random, int size, boolean frequent) {
+        double draw = random.nextDouble();
+        return (int) ((frequent ? draw * draw * 0.01 : 0.2 + draw * 0.8) * size);
+    }
+
+    private static String percentiles(long[] nanos) {
+        long[] sorted = Arrays.stream(nanos).filter(n -> n > 0).sorted().toArray();
+        if (sorted.length == 0) {
+            return "n/a";
+        }
+        return String.format("p50=%.1fms p95=%.1fms p99=%.1fms",
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) (sorted.length * 0.95)] / 1e6,
+                sorted[(int) (sorted.length * 0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,105 @@
+package api.backend.service;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import api.backend.model.user.AccountState;
+import api.backend.repository.UserRepository;
+
+/**
+ * Role and ban state of every user that has authenticated since startup, so a
+ * token can be checked without loading its user. An entry is read from the
+ * database the first time its user is seen and again once it is older than
+ * {@code app.auth.account-state-ttl-ms}; an empty entry means the user no
+ * longer exists. An admin action drops the entry on every node through the
+ * {@link ClusterMessageBus}, and the TTL bounds how stale a node can get if it
+ * misses that message.
+ */
+@Service
+public class AccountStateService {
+    private static final Logger logger = LoggerFactory.getLogger(AccountStateService.class);
+
+    private final UserRepository userRepository;
+    private final ClusterMessageBus bus;
+    private final String channel;
+    private final long ttlMs;
+    private final Map<Long, Entry> states = new ConcurrentHashMap<>();
+
+    public AccountStateService(UserRepository userRepository, ClusterMessageBus bus,
+            @Value("${app.auth.account-state-channel}") String channel,
+            @Value("${app.auth.account-state-ttl-ms}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.bus = bus;
+        this.channel = channel;
+        this.ttlMs = ttlMs;
+        bus.subscribe(channel, this::receive);
+    }
+
+    public Optional<AccountState> get(long userId) {
+        long now = System.currentTimeMillis();
+        Entry entry = states.get(userId);
+        if (entry != null && entry.isLive(now)) {
+            return entry.state();
+        }
+        long epoch = entry == null ? 0 : entry.epoch();
+        Optional<AccountState> loaded = userRepository.findAccountStateById(userId);
+        Entry fresh = new Entry(loaded, now + ttlMs, epoch);
+        // An invalidation since the read bumped the epoch, and the read may predate it
+        Entry stored = states.compute(userId, (id, current) -> epochOf(current) == epoch ? fresh : current);
+        return stored != fresh && stored.isLive(now) ? stored.state() : loaded;
+    }
+
+    // Deferred until commit, otherwise a concurrent request could cache the row as it was before the change
+    public void invalidate(long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateEverywhere(userId);
+                }
+            });
+        } else {
+            invalidateEverywhere(userId);
+        }
+    }
+
+    private void invalidateEverywhere(long userId) {
+        invalidateLocally(userId);
+        try {
+            bus.publish(channel, Long.toString(userId));
+        } catch (RuntimeException e) {
+            logger.warn("Could not broadcast account state change of user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // A tombstone rather than a removal, so the epoch survives for reads in flight
+    private void invalidateLocally(long userId) {
+        states.compute(userId, (id, current) -> new Entry(null, 0, epochOf(current) + 1));
+    }
+
+    private void receive(String message) {
+        try {
+            invalidateLocally(Long.parseLong(message));
+        } catch (NumberFormatException e) {
+            logger.warn("Dropped unreadable account state message: {}", message);
+        }
+    }
+
+    private static long epochOf(Entry entry) {
+        return entry == null ? 0 : entry.epoch();
+    }
+
+    private record Entry(Optional<AccountState> state, long expiresAt, long epoch) {
+        boolean isLive(long now) {
+            return state != null && now < expiresAt;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package api.backend.service;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.data.domain.PageRequest;
@@ -11,46 +10,41 @@ import org.springframework.stereotype.Service;
 import api.backend.model.report.Report;
 import api.backend.model.user.AdminUserResponse;
 import api.backend.model.user.UserReportSummary;
-import api.backend.repository.PostRepository;
-import api.backend.repository.ReportRepository;
 import api.backend.repository.UserRepository;
 
 @Service
 public class AdminService {
     private final UserRepository userRepository;
-    private final PostRepository postRepository;
-    private final ReportRepository reportRepository;
+    private final UserService userService;
+    private final AdminStatsAggregator stats;
 
-    public AdminService(UserRepository userRepository, PostRepository postRepository, ReportRepository reportRepository) {
+    public AdminService(UserRepository userRepository, UserService userService, AdminStatsAggregator stats) {
         this.userRepository = userRepository;
-        this.postRepository = postRepository;
-        this.reportRepository = reportRepository;
+        this.userService = userService;
+        this.stats = stats;
     }
 
     public List<AdminUserResponse> getAllUsers(long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return userRepository.findAllByIdLessThan(cursor, pageable).stream().map(UserService::toAdminUserResponse).toList();
+        return userService.toAdminUserResponses(userRepository.findAllByIdLessThan(cursor, pageable).getContent());
     }
 
     public AdminStatsResponse getAdminStats() {
-        long totalUsers = userRepository.count();
-        long totalPosts = postRepository.count();
-        long totalReports = reportRepository.count();
+        long totalUsers = stats.getTotalUsers();
+        long totalPosts = stats.getTotalPosts();
+        long totalReports = stats.getTotalReports();
 
-        LocalDateTime monthStart = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0).withNano(0);
-        long postsThisMonth = postRepository.countByCreatedAtAfter(monthStart);
-        long reportsThisMonth = reportRepository.countByCreatedAtAfter(monthStart);
+        long postsThisMonth = stats.getPostsThisMonth();
+        long reportsThisMonth = stats.getReportsThisMonth();
 
-        long pendingReports = reportRepository.countByStatus(Report.Status.PENDING);
-        long resolvedReports = reportRepository.countByStatus(Report.Status.RESOLVED);
-        long dismissedReports = reportRepository.countByStatus(Report.Status.DISMISSED);
+        long pendingReports = stats.getReports(Report.Status.PENDING);
+        long resolvedReports = stats.getReports(Report.Status.RESOLVED);
+        long dismissedReports = stats.getReports(Report.Status.DISMISSED);
 
-        long bannedUsersCount = userRepository.findAll().stream()
-                .filter(u -> u.getBannedUntil() != null && LocalDateTime.now().isBefore(u.getBannedUntil()))
-                .count();
+        long bannedUsersCount = stats.getBannedUsers();
         long activeUsers = totalUsers - bannedUsersCount;
 
-        List<UserReportSummary> mostReportedUsers = reportRepository.findMostReportedUsers(PageRequest.of(0, 5));
+        List<UserReportSummary> mostReportedUsers = stats.getMostReportedUsers();
 
         return new AdminStatsResponse(
                 totalUsers,
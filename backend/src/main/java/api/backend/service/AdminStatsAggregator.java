@@ -0,0 +1,283 @@
+package api.backend.service;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportTally;
+import api.backend.model.user.AccountState;
+import api.backend.model.user.UserReportSummary;
+import api.backend.repository.PostRepository;
+import api.backend.repository.ReportGroupRepository;
+import api.backend.repository.ReportRepository;
+import api.backend.repository.UserRepository;
+
+/**
+ * Running totals behind the admin dashboard. Registrations, bans, posts and
+ * reports update them as their transactions commit, so reading the stats costs
+ * nothing; they are recounted from the tables at startup and every
+ * {@code app.admin-stats.reconcile-interval-ms}, which also repairs whatever a
+ * change that bypasses these hooks (a cascade, the seeder) left behind. Bans
+ * expire on their own, so active ones are kept in an expiry queue.
+ */
+@Service
+public class AdminStatsAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(AdminStatsAggregator.class);
+
+    private static final int MOST_REPORTED = 5;
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final ReportRepository reportRepository;
+    private final ReportGroupRepository reportGroupRepository;
+
+    private final AtomicLong users = new AtomicLong();
+    private final AtomicLong posts = new AtomicLong();
+    private final AtomicLong reports = new AtomicLong();
+    private final Map<Report.Status, AtomicLong> reportsByStatus = new EnumMap<>(Report.Status.class);
+    private final Bans bans = new Bans();
+    // Guarded by this
+    private YearMonth month = YearMonth.now();
+    private long postsThisMonth;
+    private long reportsThisMonth;
+    private volatile List<UserReportSummary> mostReportedUsers = List.of();
+    private volatile boolean mostReportedStale = true;
+    private volatile boolean loaded;
+
+    public AdminStatsAggregator(UserRepository userRepository, PostRepository postRepository,
+            ReportRepository reportRepository, ReportGroupRepository reportGroupRepository) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.reportRepository = reportRepository;
+        this.reportGroupRepository = reportGroupRepository;
+        for (Report.Status status : Report.Status.values()) {
+            reportsByStatus.put(status, new AtomicLong());
+        }
+    }
+
+    public long getTotalUsers() {
+        return users.get();
+    }
+
+    public long getTotalPosts() {
+        return posts.get();
+    }
+
+    public long getTotalReports() {
+        return reports.get();
+    }
+
+    public long getReports(Report.Status status) {
+        return reportsByStatus.get(status).get();
+    }
+
+    public long getBannedUsers() {
+        return bans.active();
+    }
+
+    public synchronized long getPostsThisMonth() {
+        rollOver();
+        return postsThisMonth;
+    }
+
+    public synchronized long getReportsThisMonth() {
+        rollOver();
+        return reportsThisMonth;
+    }
+
+    public List<UserReportSummary> getMostReportedUsers() {
+        return mostReportedUsers;
+    }
+
+    public void userRegistered() {
+        afterCommit(() -> users.incrementAndGet());
+    }
+
+    // Deleting a user cascades to their posts and to reports by and about them, so everything is recounted
+    public void userDeleted() {
+        afterCommit(this::reconcile);
+    }
+
+    public void banChanged(long userId, LocalDateTime bannedUntil) {
+        afterCommit(() -> bans.set(userId, bannedUntil));
+    }
+
+    public void postCreated(LocalDateTime createdAt) {
+        afterCommit(() -> {
+            posts.incrementAndGet();
+            addThisMonth(createdAt, 1, 0);
+        });
+    }
+
+    /**
+     * Records a post deletion along with the reports it takes with it, as read
+     * before the delete.
+     */
+    public void postDeleted(LocalDateTime createdAt, List<ReportTally> removedReports) {
+        afterCommit(() -> {
+            posts.decrementAndGet();
+            addThisMonth(createdAt, -1, 0);
+            removedReports.forEach(report -> {
+                reports.decrementAndGet();
+                reportsByStatus.get(report.status()).decrementAndGet();
+                addThisMonth(report.createdAt(), 0, -1);
+            });
+            if (!removedReports.isEmpty()) {
+                mostReportedStale = true;
+            }
+        });
+    }
+
+    public void reportSubmitted(Report report) {
+        Report.Status status = report.getStatus();
+        LocalDateTime createdAt = report.getCreatedAt();
+        afterCommit(() -> {
+            reports.incrementAndGet();
+            reportsByStatus.get(status).incrementAndGet();
+            addThisMonth(createdAt, 0, 1);
+            mostReportedStale = true;
+        });
+    }
+
+    public void reportStatusChanged(Report.Status from, Report.Status to) {
+        reportStatusChanged(from, to, 1);
+    }
+
+    public void reportStatusChanged(Report.Status from, Report.Status to, int count) {
+        if (from != to && count > 0) {
+            afterCommit(() -> {
+                reportsByStatus.get(from).addAndGet(-count);
+                reportsByStatus.get(to).addAndGet(count);
+            });
+        }
+    }
+
+    // A GROUP BY over the reports, so it is rerun on a timer after reports change rather than per read
+    @Scheduled(fixedDelayString = "${app.admin-stats.most-reported-refresh-ms}")
+    public void refreshMostReported() {
+        if (mostReportedStale) {
+            mostReportedStale = false;
+            mostReportedUsers = List.copyOf(reportGroupRepository.findMostReportedUsers(PageRequest.of(0, MOST_REPORTED)));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.admin-stats.reconcile-interval-ms}", fixedDelayString = "${app.admin-stats.reconcile-interval-ms}")
+    public void reconcile() {
+        LocalDateTime now = LocalDateTime.now();
+        YearMonth current = YearMonth.from(now);
+        LocalDateTime monthStart = current.atDay(1).atStartOfDay();
+
+        long drift = recount(users, userRepository.count())
+                + recount(posts, postRepository.count())
+                + recount(reports, reportRepository.count());
+        for (Map.Entry<Report.Status, AtomicLong> entry : reportsByStatus.entrySet()) {
+            drift += recount(entry.getValue(), reportRepository.countByStatus(entry.getKey()));
+        }
+        long monthPosts = postRepository.countByCreatedAtAfter(monthStart);
+        long monthReports = reportRepository.countByCreatedAtAfter(monthStart);
+        synchronized (this) {
+            drift += month.equals(current) ? Math.abs(postsThisMonth - monthPosts) + Math.abs(reportsThisMonth - monthReports) : 0;
+            month = current;
+            postsThisMonth = monthPosts;
+            reportsThisMonth = monthReports;
+        }
+        bans.reset(userRepository.findBannedAccountStates(now));
+        mostReportedStale = true;
+        refreshMostReported();
+
+        if (loaded && drift > 0) {
+            logger.info("Admin stats recounted, {} off in total", drift);
+        }
+        loaded = true;
+    }
+
+    private static long recount(AtomicLong counter, long counted) {
+        return Math.abs(counter.getAndSet(counted) - counted);
+    }
+
+    private synchronized void addThisMonth(LocalDateTime createdAt, int posts, int reports) {
+        rollOver();
+        if (createdAt != null && YearMonth.from(createdAt).equals(month)) {
+            postsThisMonth += posts;
+            reportsThisMonth += reports;
+        }
+    }
+
+    private void rollOver() {
+        YearMonth current = YearMonth.now();
+        if (!current.equals(month)) {
+            month = current;
+            postsThisMonth = 0;
+            reportsThisMonth = 0;
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Ban(long userId, LocalDateTime until) {
+    }
+
+    /**
+     * Users banned until some point in the future. Expired bans are dropped
+     * from the head of the queue when counted; entries superseded by a later
+     * change to the same user are skipped.
+     */
+    private static final class Bans {
+        private final Map<Long, LocalDateTime> active = new HashMap<>();
+        private final PriorityQueue<Ban> expiries = new PriorityQueue<>((a, b) -> a.until().compareTo(b.until()));
+
+        synchronized void set(long userId, LocalDateTime until) {
+            if (until != null && until.isAfter(LocalDateTime.now())) {
+                active.put(userId, until);
+                expiries.add(new Ban(userId, until));
+            } else {
+                active.remove(userId);
+            }
+        }
+
+        synchronized void reset(List<AccountState> banned) {
+            active.clear();
+            expiries.clear();
+            banned.forEach(state -> set(state.id(), state.bannedUntil()));
+        }
+
+        synchronized long active() {
+            LocalDateTime now = LocalDateTime.now();
+            while (!expiries.isEmpty() && !expiries.peek().until().isAfter(now)) {
+                Ban ban = expiries.poll();
+                if (ban.until().equals(active.get(ban.userId()))) {
+                    active.remove(ban.userId());
+                }
+            }
+            return active.size();
+        }
+    }
+}
@@ -19,13 +19,17 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final PasswordEncoder passwordEncoder;
     private final JwtUtil jwtUtil;
+    private final UserSearchIndex searchIndex;
+    private final AdminStatsAggregator stats;
 
     public AuthService(UserRepository userRepository, AuthenticationManager authenticationManager,
-            PasswordEncoder passwordEncoder, JwtUtil jwtUtil) {
+            PasswordEncoder passwordEncoder, JwtUtil jwtUtil, UserSearchIndex searchIndex, AdminStatsAggregator stats) {
         this.userRepository = userRepository;
         this.authenticationManager = authenticationManager;
         this.passwordEncoder = passwordEncoder;
         this.jwtUtil = jwtUtil;
+        this.searchIndex = searchIndex;
+        this.stats = stats;
     }
 
     public AuthResponse register(@Valid RegisterRequest request) {
@@ -43,6 +47,8 @@ public class AuthService {
                 "USER",
                 LocalDateTime.now());
         userRepository.save(user);
+        searchIndex.put(user);
+        stats.userRegistered();
         return login(new LoginRequest(request.username().toLowerCase(), request.password()));
     }
 
@@ -0,0 +1,252 @@
+package api.backend.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import api.backend.model.media.Thumbnails;
+import api.backend.repository.UserRepository;
+
+/**
+ * Writes the {@link Thumbnails} of local avatars on a small bounded pool, off
+ * the request that uploaded them. Until a thumbnail exists its URL serves the
+ * original. Large originals are subsampled while decoding, so a huge upload
+ * costs about as much memory as the biggest thumbnail needs.
+ */
+@Service
+public class AvatarThumbnailer {
+    private static final Logger logger = LoggerFactory.getLogger(AvatarThumbnailer.class);
+
+    private static final float JPEG_QUALITY = 0.85f;
+    private static final String LOCAL_PREFIX = "images/";
+    // Decoded at no less than twice the largest thumbnail, then scaled down in halves
+    private static final int DECODE_SIZE = 2 * Thumbnails.SIZES.stream().mapToInt(Integer::intValue).max().getAsInt();
+
+    private final ThreadPoolTaskExecutor executor;
+    private final UserRepository userRepository;
+    private final Path uploadDir;
+
+    public AvatarThumbnailer(@Qualifier("avatarThumbnailExecutor") ThreadPoolTaskExecutor executor,
+            UserRepository userRepository, @Value("${app.upload.dir}") String uploadDir) {
+        this.executor = executor;
+        this.userRepository = userRepository;
+        this.uploadDir = Paths.get(uploadDir);
+    }
+
+    // Queued once the avatar change commits
+    public void schedule(Path original) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executor.execute(() -> generate(original));
+                }
+            });
+        } else {
+            executor.execute(() -> generate(original));
+        }
+    }
+
+    public void delete(Path original) {
+        for (int size : Thumbnails.SIZES) {
+            try {
+                Files.deleteIfExists(original.resolveSibling(Thumbnails.name(original.getFileName().toString(), size)));
+            } catch (IOException e) {
+                logger.warn("Could not delete thumbnail of {}: {}", original, e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Avatars stored before thumbnails existed, or whose thumbnails were lost.
+     * Fed to the pool from a thread of its own that waits for queue space, so
+     * startup neither waits for it nor ends up decoding images itself.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        Thread feeder = new Thread(this::feedBackfill, "avatar-thumbnail-backfill");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    private void feedBackfill() {
+        Semaphore queueSpace = new Semaphore(executor.getQueueCapacity());
+        int queued = 0;
+        try {
+            for (String avatar : userRepository.findLocalAvatars()) {
+                Path file = locate(avatar.substring(LOCAL_PREFIX.length()));
+                if (file == null || hasThumbnails(file)) {
+                    continue;
+                }
+                queueSpace.acquire();
+                executor.execute(() -> {
+                    try {
+                        generate(file);
+                    } finally {
+                        queueSpace.release();
+                    }
+                });
+                queued++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Could not queue thumbnails for existing avatars: {}", e.getMessage(), e);
+        }
+        if (queued > 0) {
+            logger.info("Queued thumbnails for {} avatars", queued);
+        }
+    }
+
+    // Content store avatars live two directories down, ab/cd/<name>; older ones at the top level
+    private Path locate(String name) {
+        if (name.length() < 4 || name.contains("/") || name.contains("\\")) {
+            return null;
+        }
+        Path sharded = uploadDir.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+        if (Files.isRegularFile(sharded)) {
+            return sharded;
+        }
+        Path flat = uploadDir.resolve(name);
+        return Files.isRegularFile(flat) ? flat : null;
+    }
+
+    void generate(Path original) {
+        // Avatars are shared by content, so the same picture is usually done already
+        if (hasThumbnails(original)) {
+            return;
+        }
+        try {
+            BufferedImage image = decode(original);
+            if (image == null) {
+                logger.info("No thumbnails for {}, its format cannot be decoded", original);
+                return;
+            }
+            BufferedImage square = opaque(crop(image));
+            // Largest first, each one scaled from the previous so no step shrinks by more than half
+            List<Integer> sizes = Thumbnails.SIZES.stream().sorted((a, b) -> b - a).toList();
+            for (int size : sizes) {
+                square = scale(square, size);
+                write(square, original.resolveSibling(Thumbnails.name(original.getFileName().toString(), size)));
+            }
+            // Replaced while we were at it, so these would never be cleaned up
+            if (!Files.exists(original)) {
+                delete(original);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to generate thumbnails for {}: {}", original, e.getMessage(), e);
+        }
+    }
+
+    private static BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int side = Math.min(reader.getWidth(0), reader.getHeight(0));
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, side / DECODE_SIZE);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage crop(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        return image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+    }
+
+    // JPEG has no alpha, so transparent avatars are laid on white
+    private static BufferedImage opaque(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rgb;
+    }
+
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage current = image;
+        while (current.getWidth() > size) {
+            int next = Math.max(size, current.getWidth() / 2);
+            BufferedImage scaled = new BufferedImage(next, next, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(current, 0, 0, next, next, null);
+            graphics.dispose();
+            current = scaled;
+        }
+        return current;
+    }
+
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".thumbnail-", ".part");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean hasThumbnails(Path original) {
+        String name = original.getFileName().toString();
+        return Thumbnails.SIZES.stream()
+                .allMatch(size -> Files.exists(original.resolveSibling(Thumbnails.name(name, size))));
+    }
+}
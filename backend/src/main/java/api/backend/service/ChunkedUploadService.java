@@ -0,0 +1,302 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import api.backend.exception.UploadTooLargeException;
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.MediaUploadResponse;
+import api.backend.model.media.StoredUpload;
+import api.backend.model.media.UploadSession;
+import api.backend.model.media.UploadSessionResponse;
+import api.backend.repository.UploadChunkRepository;
+import api.backend.repository.UploadSessionRepository;
+import api.backend.repository.UserRepository;
+
+/**
+ * Resumable uploads for files too large to send in one request. A session
+ * reserves a file of the final size in the spool directory; chunks may then
+ * arrive in any order and in parallel, each written at its own offset and
+ * checked against the SHA-256 the client sent for it. A chunk only counts once
+ * it is on disk, so after a dropped connection the client asks which chunks
+ * the session has and sends the rest. Completing the session hands the file to
+ * {@link MediaUploadService} like any other asynchronous upload.
+ */
+@Service
+public class ChunkedUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedUploadService.class);
+
+    private static final Set<MediaFormat.Kind> KINDS = Set.of(MediaFormat.Kind.IMAGE, MediaFormat.Kind.VIDEO);
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_OPEN_SESSIONS = 5;
+    private static final int SWEEP_BATCH = 500;
+    private static final String FILE_PREFIX = "session-";
+
+    private final UploadSessionRepository sessionRepository;
+    private final UploadChunkRepository chunkRepository;
+    private final UserRepository userRepository;
+    private final MediaUploadService mediaUploadService;
+    private final ViewerContext viewer;
+    private final Path spoolDir;
+    private final DataSize maxSize;
+    private final DataSize chunkSize;
+    private final Duration ttl;
+
+    public ChunkedUploadService(UploadSessionRepository sessionRepository, UploadChunkRepository chunkRepository,
+            UserRepository userRepository, MediaUploadService mediaUploadService, ViewerContext viewer,
+            @Value("${app.media.spool-dir}") String spoolDir,
+            @Value("${app.upload.chunked-max-size}") DataSize maxSize,
+            @Value("${app.upload.chunk-size}") DataSize chunkSize,
+            @Value("${app.upload.session-ttl-ms}") long ttlMs) {
+        this.sessionRepository = sessionRepository;
+        this.chunkRepository = chunkRepository;
+        this.userRepository = userRepository;
+        this.mediaUploadService = mediaUploadService;
+        this.viewer = viewer;
+        this.spoolDir = Paths.get(spoolDir);
+        this.maxSize = maxSize;
+        this.chunkSize = chunkSize;
+        this.ttl = Duration.ofMillis(ttlMs);
+    }
+
+    public UploadSessionResponse create(long size) {
+        if (size > maxSize.toBytes()) {
+            throw new UploadTooLargeException(maxSize.toBytes());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (sessionRepository.countByOwnerIdAndExpiresAtAfter(viewer.getId(), now) >= MAX_OPEN_SESSIONS) {
+            throw new IllegalStateException("Too many uploads in progress");
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path path = spoolDir.resolve(FILE_PREFIX + id + ".part");
+        try {
+            Files.createDirectories(spoolDir);
+            if (Files.getFileStore(spoolDir).getUsableSpace() < size) {
+                throw new IllegalStateException("Not enough space for this upload");
+            }
+            // Reserves the final length up front, so every chunk is a write in place
+            try (RandomAccessFile file = new RandomAccessFile(Files.createFile(path).toFile(), "rw")) {
+                file.setLength(size);
+            }
+        } catch (IOException e) {
+            deleteFile(path);
+            throw new UncheckedIOException("Failed to create upload session", e);
+        }
+
+        try {
+            UploadSession session = sessionRepository.save(new UploadSession(id,
+                    userRepository.getReferenceById(viewer.getId()), size, (int) chunkSize.toBytes(),
+                    path.toString(), now.plus(ttl)));
+            return UploadSessionResponse.of(session, List.of());
+        } catch (RuntimeException e) {
+            deleteFile(path);
+            throw e;
+        }
+    }
+
+    public UploadSessionResponse getSession(String id) {
+        return status(find(id));
+    }
+
+    /**
+     * Writes chunk {@code index} from {@code body}. A chunk that is already
+     * there is not written again, so a retry whose answer was lost costs
+     * nothing. {@code checksum} is the hex SHA-256 of the chunk, if the client
+     * sent one.
+     */
+    public UploadSessionResponse putChunk(String id, int index, String checksum, long contentLength,
+            InputStream body) {
+        UploadSession session = find(id);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new IllegalArgumentException("Chunk index out of range");
+        }
+        int length = session.lengthOf(index);
+        if (contentLength >= 0 && contentLength != length) {
+            throw new IllegalArgumentException("Chunk " + index + " must be " + length + " bytes");
+        }
+        String received = chunkRepository.findChecksum(id, index).orElse(null);
+        if (received != null) {
+            if (checksum != null && !checksum.equalsIgnoreCase(received)) {
+                throw new IllegalArgumentException("Chunk " + index + " was already received with other content");
+            }
+            return status(session);
+        }
+
+        String sha256 = write(session, index, length, body);
+        if (checksum != null && !checksum.equalsIgnoreCase(sha256)) {
+            // Left unrecorded, so the client can send it again
+            throw new IllegalArgumentException("Chunk " + index + " does not match its checksum");
+        }
+        chunkRepository.insertIfAbsent(id, index, sha256);
+        session.setExpiresAt(LocalDateTime.now().plus(ttl));
+        sessionRepository.extend(id, session.getExpiresAt());
+        return status(session);
+    }
+
+    /**
+     * Checks that every chunk is there, sniffs and hashes the assembled file
+     * and submits it as a media upload. The session is gone afterwards.
+     */
+    public MediaUploadResponse complete(String id) {
+        UploadSession session = find(id);
+        long missing = session.getChunkCount() - chunkRepository.countBySessionId(id);
+        if (missing > 0) {
+            throw new IllegalArgumentException("Upload is missing " + missing + " chunks");
+        }
+
+        Path path = Paths.get(session.getSpoolPath());
+        StoredUpload upload = inspect(path, session.getSize());
+        if (sessionRepository.claim(id) == 0) {
+            throw new IllegalArgumentException("Upload session not found");
+        }
+        if (upload.format() == null || !KINDS.contains(upload.format().getKind())) {
+            deleteFile(path);
+            throw new IllegalArgumentException("type not allowed");
+        }
+        return mediaUploadService.submit(upload);
+    }
+
+    public void abort(String id) {
+        UploadSession session = find(id);
+        if (sessionRepository.claim(id) > 0) {
+            deleteFile(Paths.get(session.getSpoolPath()));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${app.upload.session-sweep-interval-ms}",
+            fixedDelayString = "${app.upload.session-sweep-interval-ms}")
+    public void expireSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        List<UploadSession> batch;
+        do {
+            batch = sessionRepository.findExpired(now, PageRequest.of(0, SWEEP_BATCH));
+            for (UploadSession session : batch) {
+                if (sessionRepository.deleteIfExpired(session.getId(), now) > 0) {
+                    deleteFile(Paths.get(session.getSpoolPath()));
+                    expired++;
+                }
+            }
+        } while (batch.size() == SWEEP_BATCH);
+        sweepOrphans();
+
+        if (expired > 0) {
+            logger.info("Expired {} abandoned upload sessions", expired);
+        }
+    }
+
+    // Files whose session row is gone, after a crash between deleting the row and the file
+    private void sweepOrphans() {
+        if (!Files.isDirectory(spoolDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(ttl);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir, FILE_PREFIX + "*.part")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String id = name.substring(FILE_PREFIX.length(), name.length() - ".part".length());
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && !sessionRepository.existsById(id)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not sweep {}: {}", spoolDir, e.getMessage());
+        }
+    }
+
+    private String write(UploadSession session, int index, int length, InputStream body) {
+        MessageDigest digest = UploadStreamer.sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long position = session.offsetOf(index);
+        long written = 0;
+        try (FileChannel out = FileChannel.open(Paths.get(session.getSpoolPath()), StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = body.read(buffer)) > 0) {
+                if (written + read > length) {
+                    throw new IllegalArgumentException("Chunk " + index + " must be " + length + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                while (chunk.hasRemaining()) {
+                    position += out.write(chunk, position);
+                }
+                written += read;
+            }
+            if (written != length) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + length + " bytes");
+            }
+            // On disk before it is recorded as received
+            out.force(false);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException("Upload session not found");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write chunk " + index, e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static StoredUpload inspect(Path path, long size) {
+        MessageDigest digest = UploadStreamer.sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(MediaFormat.HEADER_BYTES);
+            int read;
+            do {
+                read = in.read(head, head.position());
+            } while (read > 0 && head.hasRemaining());
+            MediaFormat format = MediaFormat.sniff(head.array(), head.position());
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return new StoredUpload(path, format, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read upload", e);
+        }
+    }
+
+    private UploadSession find(String id) {
+        return sessionRepository.findLive(id, viewer.getId(), LocalDateTime.now())
+                .orElseThrow(() -> new IllegalArgumentException("Upload session not found"));
+    }
+
+    private UploadSessionResponse status(UploadSession session) {
+        return UploadSessionResponse.of(session, chunkRepository.findIndexes(session.getId()));
+    }
+
+    private static void deleteFile(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete upload session file {}: {}", path, e.getMessage());
+        }
+    }
+}
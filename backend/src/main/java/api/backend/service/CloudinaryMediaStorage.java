@@ -0,0 +1,35 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.cloudinary.Cloudinary;
+
+import api.backend.model.media.StoredUpload;
+
+// Hands Cloudinary the spooled File, which its HTTP client streams from disk
+@Service
+@ConditionalOnProperty(name = "app.media.storage", havingValue = "cloudinary", matchIfMissing = true)
+public class CloudinaryMediaStorage implements MediaStorage {
+    private final Cloudinary cloudinary;
+
+    public CloudinaryMediaStorage(Cloudinary cloudinary) {
+        this.cloudinary = cloudinary;
+    }
+
+    @Override
+    public String store(StoredUpload upload, String folder) throws IOException {
+        String resourceType = upload.format().getKind().resourceType();
+        HashMap<Object, Object> options = new HashMap<>();
+        options.put("folder", folder);
+        options.put("resource_type", resourceType);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> uploadedFile = cloudinary.uploader().upload(upload.path().toFile(), options);
+        String publicId = (String) uploadedFile.get("public_id");
+        return cloudinary.url().secure(true).resourceType(resourceType).generate(publicId);
+    }
+}
@@ -1,36 +0,0 @@
-package api.backend.service;
-
-import java.util.HashMap;
-import java.util.Map;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
-
-import com.cloudinary.Cloudinary;
-
-import jakarta.annotation.Resource;
-
-@Service
-public class CloudinaryService {
-    private static final Logger logger = LoggerFactory.getLogger(CloudinaryService.class);
-
-    @Resource
-    private Cloudinary cloudinary;
-
-    public String uploadFile(MultipartFile file, String folderName, String resourceType) {
-        try {
-            HashMap<Object, Object> options = new HashMap<>();
-            options.put("folder", folderName);
-            options.put("resource_type", resourceType);
-            @SuppressWarnings("unchecked")
-            Map<String,Object> uploadedFile = cloudinary.uploader().upload(file.getBytes(), options);
-            String publicId = (String) uploadedFile.get("public_id");
-            return cloudinary.url().secure(true).resourceType(resourceType).generate(publicId);
-        } catch (Exception e) {
-            logger.error("Failed to upload file: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to upload file", e);
-        }
-    }
-}
\ No newline at end of file
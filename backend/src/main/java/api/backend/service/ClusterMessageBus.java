@@ -0,0 +1,23 @@
+package api.backend.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts short text messages to every backend node, this one included.
+ * One implementation is active, picked by {@code app.cluster.bus}:
+ * {@code memory} for a single node, or {@code postgres} to go through
+ * LISTEN/NOTIFY on the application database. Delivery is best effort; a node
+ * that is down or reconnecting misses what was sent meanwhile.
+ */
+public interface ClusterMessageBus {
+
+    void publish(String channel, String message);
+
+    // Longest message publish accepts, in UTF-8 bytes
+    default int maxMessageBytes() {
+        return Integer.MAX_VALUE;
+    }
+
+    // The handler runs on the bus's own thread and must not block for long
+    void subscribe(String channel, Consumer<String> handler);
+}
@@ -3,39 +3,62 @@ package api.backend.service;
 import api.backend.model.comment.Comment;
 import api.backend.model.comment.CommentRequest;
 import api.backend.model.comment.CommentResponse;
-import api.backend.model.like.CommentLike;
+import api.backend.model.comment.CommentThreadResponse;
 import api.backend.model.post.Post;
 import api.backend.model.user.User;
 import api.backend.repository.CommentRepository;
 import api.backend.repository.PostRepository;
 import api.backend.repository.UserRepository;
 import api.backend.repository.like.CommentLikeRepository;
+import jakarta.transaction.Transactional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class CommentService {
+    private static final Logger logger = LoggerFactory.getLogger(CommentService.class);
+
+    // One zero-padded id plus its separator
+    private static final int ROOT_SEGMENT_LENGTH = 20;
 
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final CommentLikeRepository commentLikeRepository;
+    private final ViewerContext viewer;
+    private final CounterService counterService;
+    private final RollupService rollupService;
+    private final JdbcTemplate jdbcTemplate;
 
     public CommentService(CommentRepository commentRepository, PostRepository postRepository,
-            UserRepository userRepository, CommentLikeRepository commentLikeRepository) {
+            UserRepository userRepository, CommentLikeRepository commentLikeRepository, ViewerContext viewer,
+            CounterService counterService, RollupService rollupService, JdbcTemplate jdbcTemplate) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.commentLikeRepository = commentLikeRepository;
+        this.viewer = viewer;
+        this.counterService = counterService;
+        this.rollupService = rollupService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    @Transactional
     public CommentResponse addComment(long postId, long userId, CommentRequest request) {
         User user = userRepository.findById(userId).get();
         Post post = postRepository.findById(postId).get();
@@ -48,20 +71,16 @@ public class CommentService {
 
         Comment comment = new Comment(user, post, request.content(), parent);
         Comment savedComment = commentRepository.save(comment);
+        savedComment.assignPath();
 
-        // Update commentsCount in Post
-        post.setCommentsCount(post.getCommentsCount() + 1);
-        postRepository.save(post);
-
-        // Update replyCount for the parent if it exists
+        counterService.add(CounterService.Field.POST_COMMENTS, postId, 1);
         if (parent != null) {
-            parent.setRepliesCount(parent.getRepliesCount() + 1);
-            commentRepository.save(parent);
+            counterService.add(CounterService.Field.COMMENT_REPLIES, parent.getId(), 1);
         }
         CommentResponse commentResponse = new CommentResponse(
                 savedComment.getId(),
                 savedComment.getContent(),
-                (UserService.toUserResponse(user)),
+                (UserService.toUserResponse(user, false)),
                 postId,
                 savedComment.getCreatedAt(),
                 request.parentId(),
@@ -84,38 +103,34 @@ public class CommentService {
 
     // likeComment
     public int likeComment(long commentId, long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-        Comment comment = commentRepository.findById(commentId)
-                .orElseThrow(() -> new IllegalArgumentException("Target comment not found"));
-
-        Optional<CommentLike> existingLike = commentLikeRepository.findByCommentIdAndUserId(commentId, userId);
-
-        if (existingLike.isPresent()) {
-            commentLikeRepository.delete(existingLike.get());
-            comment.setLikesCount(comment.getLikesCount() - 1);
-            commentRepository.save(comment);
+        if (!commentRepository.existsById(commentId)) {
+            throw new IllegalArgumentException("Target comment not found");
+        }
+        if (commentLikeRepository.deleteLike(commentId, userId) > 0) {
+            counterService.add(CounterService.Field.COMMENT_LIKES, commentId, -1);
             return -1;
-        } else {
-            CommentLike newLike = new CommentLike(user, comment);
-            commentLikeRepository.save(newLike);
-            comment.setLikesCount(comment.getLikesCount() + 1);
-            commentRepository.save(comment);
+        }
+        if (commentLikeRepository.insertLike(commentId, userId) > 0) {
+            counterService.add(CounterService.Field.COMMENT_LIKES, commentId, 1);
+            rollupService.record(RollupService.Event.LIKES);
             return 1;
         }
+        return 0;
     }
 
     public boolean deleteComment(long commentId, User currentUser) {
         return commentRepository.findById(commentId)
                 .map(comment -> {
+                    long postId = comment.getPost().getId();
+                    // The whole subtree goes with the comment, replies of replies included
+                    long removed = comment.getPath() != null
+                            ? commentRepository.countSubtree(postId, comment.getPath())
+                            : 1 + counterService.current(CounterService.Field.COMMENT_REPLIES, comment.getId(),
+                                    comment.getRepliesCount());
                     commentRepository.delete(comment);
-                    postRepository.findById(comment.getPost().getId()).ifPresent(post -> {
-                        post.setCommentsCount(Math.max(0, post.getCommentsCount() - 1 - comment.getRepliesCount()));
-                        postRepository.save(post);
-                    });
+                    counterService.add(CounterService.Field.POST_COMMENTS, postId, -removed);
                     if (comment.getParent() != null) {
-                        comment.getParent().setRepliesCount(comment.getParent().getRepliesCount() - 1);
-                        commentRepository.save(comment.getParent());
+                        counterService.add(CounterService.Field.COMMENT_REPLIES, comment.getParent().getId(), -1);
                     }
                     return true;
                 }).get();
@@ -128,45 +143,102 @@ public class CommentService {
 
     public List<CommentResponse> getReplies(Long commentId, long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC,"id");
-
-        return commentRepository.findByParentIdAndIdLessThan(commentId, cursor, pageable).map(comment -> {
-            User currentUser = getCurrentUser();
-            boolean likedByCurrentUser = commentLikeRepository.findByCommentIdAndUserId(comment.getId(), currentUser.getId()).isPresent();
-            return new CommentResponse(
-                    comment.getId(),
-                    comment.getContent(),
-                    (UserService.toUserResponse(comment.getUser())),
-                    comment.getPost().getId(),
-                    comment.getCreatedAt(),
-                    comment.getParent() != null ? comment.getParent().getId() : null,
-                    comment.getLikesCount(),
-                    comment.getRepliesCount(),
-                    likedByCurrentUser);
-        }).toList();
+        return toCommentResponses(commentRepository.findByParentIdAndIdLessThan(commentId, cursor, pageable).getContent());
     }
 
     public List<CommentResponse> getTopLevelComments(Long postId, long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return commentRepository.findByPostIdAndParentIsNullAndIdLessThan(postId,cursor, pageable).map(comment -> {
-            User currentUser = getCurrentUser();
-            boolean likedByCurrentUser = commentLikeRepository.findByCommentIdAndUserId(comment.getId(), currentUser.getId()).isPresent();
+        return toCommentResponses(
+                commentRepository.findByPostIdAndParentIsNullAndIdLessThan(postId, cursor, pageable).getContent());
+    }
+
+    /**
+     * A page of top-level comments, each with the first {@code replies}
+     * comments of its subtree, loaded with a fixed number of queries.
+     */
+    public List<CommentThreadResponse> getThread(long postId, long cursor, int replies) {
+        List<Comment> rows = commentRepository.findThread(postId, cursor, 10, replies);
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        // Puts every author in the persistence context so the mapping below does not load them one by one
+        userRepository.findAllById(rows.stream().map(c -> c.getUser().getId()).distinct().toList());
+
+        Map<Long, CommentResponse> responses = toCommentResponses(rows).stream()
+                .collect(Collectors.toMap(CommentResponse::id, response -> response));
+        Map<String, List<CommentResponse>> repliesByRoot = rows.stream()
+                .filter(c -> c.getDepth() > 0)
+                .sorted(Comparator.comparing(Comment::getPath))
+                .collect(Collectors.groupingBy(c -> c.getPath().substring(0, ROOT_SEGMENT_LENGTH),
+                        Collectors.mapping(c -> responses.get(c.getId()), Collectors.toList())));
+
+        return rows.stream()
+                .filter(c -> c.getDepth() == 0)
+                .sorted(Comparator.comparing(Comment::getId).reversed())
+                .map(root -> new CommentThreadResponse(responses.get(root.getId()),
+                        root.getPath() != null ? repliesByRoot.getOrDefault(root.getPath(), List.of()) : List.of()))
+                .toList();
+    }
 
+    // The column has to be widened before deep paths are backfilled into it
+    @EventListener(ApplicationReadyEvent.class)
+    public void preparePaths() {
+        ensurePathColumn();
+        backfillPaths();
+    }
+
+    /*
+     * Subtrees are matched as byte-order ranges, which an index in the
+     * database's default collation cannot serve; Hibernate cannot declare a
+     * collation on an index, so it is created here. ddl-auto=update does not
+     * change column types either, so a path column created as varchar(255)
+     * is widened here too.
+     */
+    private void ensurePathColumn() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        String type = jdbcTemplate.queryForObject(
+                "SELECT data_type FROM information_schema.columns WHERE table_schema = current_schema() AND table_name = 'comments' AND column_name = 'path'",
+                String.class);
+        if (!"text".equals(type)) {
+            jdbcTemplate.execute("ALTER TABLE comments ALTER COLUMN path TYPE TEXT");
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_comments_post_path_c ON comments (post_id, path COLLATE \"C\")");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_comments_post_path");
+    }
+
+    private void backfillPaths() {
+        int filled = commentRepository.backfillRootPaths();
+        int level;
+        while ((level = commentRepository.backfillReplyPaths()) > 0) {
+            filled += level;
+        }
+        if (filled > 0) {
+            logger.info("Assigned thread paths to {} existing comments", filled);
+        }
+    }
+
+    // One query for the viewer's likes and one for followed authors, whatever the page size
+    private List<CommentResponse> toCommentResponses(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> likedCommentIds = viewer.likedCommentsAmong(comments.stream().map(Comment::getId).toList());
+        Set<Long> followedAuthorIds = viewer.followedAmong(comments.stream().map(c -> c.getUser().getId()).toList());
+        return comments.stream().map(comment -> {
+            boolean likedByCurrentUser = likedCommentIds.contains(comment.getId());
             return new CommentResponse(
                     comment.getId(),
                     comment.getContent(),
-                    (UserService.toUserResponse(comment.getUser())),
-                    postId,
+                    (UserService.toUserResponse(comment.getUser(), followedAuthorIds.contains(comment.getUser().getId()))),
+                    comment.getPost().getId(),
                     comment.getCreatedAt(),
-                    null, 
-                    comment.getLikesCount(),
-                    comment.getRepliesCount(),
+                    comment.getParent() != null ? comment.getParent().getId() : null,
+                    (int) counterService.current(CounterService.Field.COMMENT_LIKES, comment.getId(), comment.getLikesCount()),
+                    (int) counterService.current(CounterService.Field.COMMENT_REPLIES, comment.getId(), comment.getRepliesCount()),
                     likedByCurrentUser);
         }).toList();
     }
-
-    private User getCurrentUser() {
-        long userId = ((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getId();
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-    }
 }
\ No newline at end of file
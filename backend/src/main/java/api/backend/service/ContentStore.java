@@ -0,0 +1,248 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import api.backend.model.media.MediaBlob;
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.StoredUpload;
+import api.backend.repository.MediaBlobRepository;
+
+/**
+ * Local media keyed by the SHA-256 of its content and laid out as
+ * {@code ab/cd/<sha256>.<ext>} under the upload directory, so no directory holds
+ * more than a few files however many there are. Storing content that is
+ * already there only adds a reference. Blobs nothing refers to any more are
+ * deleted by a background collector once {@code app.media.gc-grace-ms} has
+ * passed, together with their thumbnails.
+ *
+ * A blob row and its file change together while the row is locked with
+ * {@code SELECT ... FOR UPDATE}, so the collector on any node sharing the
+ * upload directory never removes a file that is being put again.
+ */
+@Service
+public class ContentStore {
+    private static final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+
+    // A blob or one of its thumbnails
+    private static final Pattern NAME = Pattern.compile("([0-9a-f]{64})(-w\\d{1,4})?\\.[a-z0-9]+");
+    private static final String URL_PREFIX = "images/";
+    private static final String SPOOL_DIR = ".spool";
+    private static final int GC_BATCH = 500;
+
+    private final MediaBlobRepository blobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final UploadStreamer uploadStreamer;
+    private final AvatarThumbnailer thumbnailer;
+    private final Path root;
+    private final Path spoolDir;
+    private final Duration grace;
+
+    public ContentStore(MediaBlobRepository blobRepository, TransactionTemplate transactionTemplate,
+            UploadStreamer uploadStreamer, AvatarThumbnailer thumbnailer,
+            @Value("${app.upload.dir}") String uploadDir,
+            @Value("${app.media.gc-grace-ms}") long graceMs) {
+        this.blobRepository = blobRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.uploadStreamer = uploadStreamer;
+        this.thumbnailer = thumbnailer;
+        this.root = Paths.get(uploadDir);
+        this.spoolDir = root.resolve(SPOOL_DIR);
+        this.grace = Duration.ofMillis(graceMs);
+    }
+
+    // Spooled next to the store, so retaining it is a rename
+    public StoredUpload spool(MultipartFile file, long maxBytes, Set<MediaFormat.Kind> kinds) {
+        return uploadStreamer.spool(file, spoolDir, maxBytes, kinds);
+    }
+
+    /**
+     * Brings the content of a spooled upload into the store unless it is there
+     * already, and returns where it lives; the spooled file is used up either
+     * way. Runs outside any transaction, so the blob row is committed with its
+     * file: if the reference added afterwards never commits, the blob is left
+     * unreferenced and the collector reclaims it after the grace period.
+     */
+    public StoredUpload put(StoredUpload spooled) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Blobs are put outside transactions");
+        }
+        String sha256 = spooled.sha256();
+        Path target = pathOf(sha256 + "." + spooled.format().getExtension());
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            // A row inserted here stays invisible to the collector until the file is in place
+            if (blobRepository.lockBySha256(sha256).isEmpty()
+                    && blobRepository.insertIfAbsent(sha256, spooled.format().getExtension(), spooled.size(), now) == 0) {
+                // Another node committed the row meanwhile
+                blobRepository.lockBySha256(sha256);
+            }
+            // A blob waiting to be collected gets a new grace period, so it outlives the reference about to be added
+            blobRepository.touchIfUnreferenced(sha256, now);
+            try {
+                // Checked against the file rather than the row, so a lost file is brought back
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    move(spooled.path(), target);
+                } else {
+                    Files.deleteIfExists(spooled.path());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to store " + sha256, e);
+            }
+        });
+        return new StoredUpload(target, spooled.format(), spooled.size(), sha256);
+    }
+
+    // Adds a reference to a blob that was put beforehand, in the caller's transaction
+    public void retain(StoredUpload stored) {
+        if (blobRepository.retain(stored.sha256()) == 0) {
+            throw new IllegalStateException("Blob " + stored.sha256() + " is not in the store");
+        }
+    }
+
+    // For a spooled file that stays with its owner; content already in the store is not copied at all
+    public StoredUpload retainCopy(StoredUpload upload) throws IOException {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Blobs are put outside transactions");
+        }
+        Path target = pathOf(upload.sha256() + "." + upload.format().getExtension());
+        Boolean retained = transactionTemplate.execute(status -> {
+            if (blobRepository.lockBySha256(upload.sha256()).isEmpty() || !Files.exists(target)) {
+                return false;
+            }
+            blobRepository.retain(upload.sha256());
+            return true;
+        });
+        if (Boolean.TRUE.equals(retained)) {
+            return new StoredUpload(target, upload.format(), upload.size(), upload.sha256());
+        }
+
+        Files.createDirectories(spoolDir);
+        Path copy = Files.createTempFile(spoolDir, "copy-", ".part");
+        try {
+            Files.copy(upload.path(), copy, StandardCopyOption.REPLACE_EXISTING);
+            StoredUpload stored = put(new StoredUpload(copy, upload.format(), upload.size(), upload.sha256()));
+            retain(stored);
+            return stored;
+        } finally {
+            Files.deleteIfExists(copy);
+        }
+    }
+
+    // Drops a reference held by a URL; URLs outside the store are ignored
+    public void release(String url) {
+        if (url == null || !url.startsWith(URL_PREFIX)) {
+            return;
+        }
+        Matcher matcher = NAME.matcher(url.substring(URL_PREFIX.length()));
+        if (matcher.matches() && matcher.group(2) == null) {
+            blobRepository.release(matcher.group(1), LocalDateTime.now());
+        }
+    }
+
+    public String urlOf(StoredUpload stored) {
+        return URL_PREFIX + stored.sha256() + "." + stored.format().getExtension();
+    }
+
+    public static boolean isStored(String url) {
+        return url != null && url.startsWith(URL_PREFIX) && NAME.matcher(url.substring(URL_PREFIX.length())).matches();
+    }
+
+    // Where a blob or thumbnail of the store lives, if name is one
+    public Optional<Path> resolve(String name) {
+        return NAME.matcher(name).matches() ? Optional.of(pathOf(name)) : Optional.empty();
+    }
+
+    @Scheduled(initialDelayString = "${app.media.gc-interval-ms}", fixedDelayString = "${app.media.gc-interval-ms}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(grace);
+        int collected = 0;
+        long freed = 0;
+        List<MediaBlob> batch;
+        do {
+            batch = blobRepository.findCollectable(cutoff, PageRequest.of(0, GC_BATCH));
+            for (MediaBlob blob : batch) {
+                if (!Boolean.TRUE.equals(transactionTemplate.execute(status -> collect(blob, cutoff)))) {
+                    continue;
+                }
+                collected++;
+                freed += blob.getSize();
+            }
+        } while (batch.size() == GC_BATCH);
+        sweepSpool();
+
+        if (collected > 0) {
+            logger.info("Collected {} unreferenced media blobs, {} bytes", collected, freed);
+        }
+    }
+
+    // Deletes the file while the row is locked, so a put of the same content waits for it
+    private boolean collect(MediaBlob blob, LocalDateTime cutoff) {
+        if (blobRepository.lockBySha256(blob.getSha256()).isEmpty()
+                || blobRepository.deleteIfCollectable(blob.getSha256(), cutoff) == 0) {
+            return false;
+        }
+        Path path = pathOf(blob.getName());
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Could not delete collected blob {}: {}", path, e.getMessage());
+        }
+        thumbnailer.delete(path);
+        return true;
+    }
+
+    // Left behind by uploads that died half way
+    private void sweepSpool() {
+        if (!Files.isDirectory(spoolDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(grace);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(spoolDir)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Could not sweep {}: {}", spoolDir, e.getMessage());
+        }
+    }
+
+    private Path pathOf(String name) {
+        return root.resolve(name.substring(0, 2)).resolve(name.substring(2, 4)).resolve(name);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
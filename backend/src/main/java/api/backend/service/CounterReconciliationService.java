@@ -0,0 +1,76 @@
+package api.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import api.backend.repository.CommentRepository;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+
+/**
+ * Backfills and verifies the denormalized counters against the rows they
+ * summarize. Runs once at startup, so existing data gets its counts, and then
+ * on {@code app.counters.reconcile-cron} to repair any drift. Post and comment
+ * counters are written behind by {@link CounterService} on every node, so a
+ * rebuild would count twice whatever another node has not flushed yet; they
+ * are only reported when they drift, and rebuilt at startup only when
+ * {@code app.counters.rebuild-on-startup} says no other node is running.
+ */
+@Service
+public class CounterReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(CounterReconciliationService.class);
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final CounterService counterService;
+    private final boolean rebuildOnStartup;
+
+    public CounterReconciliationService(UserRepository userRepository, PostRepository postRepository,
+            CommentRepository commentRepository, CounterService counterService,
+            @Value("${app.counters.rebuild-on-startup}") boolean rebuildOnStartup) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.counterService = counterService;
+        this.rebuildOnStartup = rebuildOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void reconcileOnStartup() {
+        reconcile();
+        if (!rebuildOnStartup) {
+            return;
+        }
+        int posts = postRepository.reconcileCounters();
+        int comments = commentRepository.reconcileCounters();
+        if (posts > 0 || comments > 0) {
+            logger.info("Rebuilt like and comment counters for {} posts and {} comments", posts, comments);
+        }
+    }
+
+    @Scheduled(cron = "${app.counters.reconcile-cron}")
+    public void reconcile() {
+        long drifted = userRepository.countUsersWithCounterDrift();
+        if (drifted > 0) {
+            int fixed = userRepository.reconcileCounters();
+            logger.warn("Profile counters were out of date for {} users, {} corrected", drifted, fixed);
+        }
+
+        counterService.flush();
+        long posts = postRepository.countPostsWithCounterDrift();
+        long comments = commentRepository.countCommentsWithCounterDrift();
+        if (posts > 0 || comments > 0) {
+            logger.warn("Like and comment counters differ from their rows for {} posts and {} comments; "
+                    + "start a single node with app.counters.rebuild-on-startup=true to rebuild them", posts, comments);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package api.backend.service;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Write-behind like, comment and reply counts. Changes are kept as in-memory
+ * deltas, spread over lock stripes, and applied in periodic batches of
+ * {@code UPDATE ... SET x = x + delta}, so a hot post no longer serializes its
+ * likes on one row. A delta is only recorded once the transaction that changed
+ * the underlying rows has committed; the rows stay the source of truth and
+ * {@link CounterReconciliationService} reports columns that drift from them,
+ * such as after a crash kept deltas from being flushed, and can rebuild them.
+ */
+@Service
+public class CounterService {
+    private static final Logger logger = LoggerFactory.getLogger(CounterService.class);
+
+    private static final int STRIPES = 32;
+
+    public enum Field {
+        POST_LIKES("posts", "likes_count"),
+        POST_COMMENTS("posts", "comments_count"),
+        COMMENT_LIKES("comments", "likes_count"),
+        COMMENT_REPLIES("comments", "replies_count");
+
+        private final String updateSql;
+
+        Field(String table, String column) {
+            this.updateSql = "UPDATE " + table + " SET " + column + " = " + column + " + ? WHERE id = ?";
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final Counter flushFailures;
+
+    public CounterService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        this.flushFailures = meterRegistry.counter("counters.flush.failures");
+        Gauge.builder("counters.flush.lag", this, CounterService::flushLagSeconds)
+                .description("Age of the oldest counter change not yet written to the database")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("counters.pending", this, CounterService::pendingCount)
+                .description("Counters with changes not yet written to the database")
+                .register(meterRegistry);
+    }
+
+    public void add(Field field, long id, long delta) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record(new Key(field, id), delta);
+                }
+            });
+        } else {
+            record(new Key(field, id), delta);
+        }
+    }
+
+    /**
+     * The value to show for a counter whose column was read as {@code persisted}.
+     */
+    public long current(Field field, long id, long persisted) {
+        Key key = new Key(field, id);
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            return persisted + stripe.pending.getOrDefault(key, 0L) + stripe.inFlight.getOrDefault(key, 0L);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms}")
+    public synchronized void flush() {
+        Map<Field, List<Object[]>> batches = new EnumMap<>(Field.class);
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.pending.isEmpty()) {
+                    continue;
+                }
+                stripe.inFlight = stripe.pending;
+                stripe.oldestInFlight = stripe.oldestPending;
+                stripe.pending = new HashMap<>();
+                stripe.oldestPending = 0;
+                stripe.inFlight.forEach((key, delta) -> {
+                    if (delta != 0) {
+                        batches.computeIfAbsent(key.field(), f -> new ArrayList<>()).add(new Object[] { delta, key.id() });
+                    }
+                });
+            }
+        }
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> batches.forEach(
+                    (field, args) -> jdbcTemplate.batchUpdate(field.updateSql, args)));
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.inFlight = new HashMap<>();
+                    stripe.oldestInFlight = 0;
+                }
+            }
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            logger.error("Failed to flush counters, keeping them for the next attempt: {}", e.getMessage(), e);
+            // The deltas keep their original age, so the lag gauge shows how long flushes have been failing
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    if (!stripe.inFlight.isEmpty()) {
+                        stripe.inFlight.forEach((key, delta) -> stripe.pending.merge(key, delta, Long::sum));
+                        stripe.inFlight = new HashMap<>();
+                        stripe.oldestPending = oldest(stripe.oldestPending, stripe.oldestInFlight);
+                        stripe.oldestInFlight = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void record(Key key, long delta) {
+        Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            if (stripe.pending.isEmpty()) {
+                stripe.oldestPending = System.nanoTime();
+            }
+            stripe.pending.merge(key, delta, Long::sum);
+        }
+    }
+
+    private Stripe stripeOf(Key key) {
+        return stripes[Math.floorMod(key.hashCode(), STRIPES)];
+    }
+
+    private double flushLagSeconds() {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                oldest = oldest(oldest, oldest(stripe.oldestPending, stripe.oldestInFlight));
+            }
+        }
+        return oldest == 0 ? 0 : (now - oldest) / (double) TimeUnit.SECONDS.toNanos(1);
+    }
+
+    // Of two System.nanoTime() stamps where 0 means none
+    private static long oldest(long a, long b) {
+        if (a == 0) {
+            return b;
+        }
+        return b == 0 || a - b < 0 ? a : b;
+    }
+
+    private int pendingCount() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.pending.size() + stripe.inFlight.size();
+            }
+        }
+        return total;
+    }
+
+    private record Key(Field field, long id) {
+    }
+
+    private static final class Stripe {
+        Map<Key, Long> pending = new HashMap<>();
+        // Drained by a flush that has not committed yet; still counted by current()
+        Map<Key, Long> inFlight = new HashMap<>();
+        long oldestPending;
+        long oldestInFlight;
+    }
+}
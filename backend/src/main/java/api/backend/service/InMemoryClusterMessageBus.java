@@ -0,0 +1,37 @@
+package api.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+// Hands messages to the subscribers in this JVM, on the publishing thread
+@Service
+@ConditionalOnProperty(name = "app.cluster.bus", havingValue = "memory", matchIfMissing = true)
+public class InMemoryClusterMessageBus implements ClusterMessageBus {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryClusterMessageBus.class);
+
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+
+    @Override
+    public void publish(String channel, String message) {
+        for (Consumer<String> handler : subscribers.getOrDefault(channel, List.of())) {
+            try {
+                handler.accept(message);
+            } catch (RuntimeException e) {
+                logger.error("Handler for {} failed: {}", channel, e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> handler) {
+        subscribers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+}
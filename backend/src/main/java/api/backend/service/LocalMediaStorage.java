@@ -0,0 +1,42 @@
+package api.backend.service;
+
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import api.backend.model.media.StoredUpload;
+
+/**
+ * Stands in for Cloudinary by keeping media in the {@link ContentStore}, where
+ * {@code MediaController} serves it, so storing the same file twice costs no
+ * extra space. Uploads are referred to from post content, which is not
+ * tracked, so every stored upload keeps its reference for good.
+ * {@code app.media.local-latency-ms} adds an artificial delay per upload to
+ * mimic a remote store.
+ */
+@Service
+@ConditionalOnProperty(name = "app.media.storage", havingValue = "local")
+public class LocalMediaStorage implements MediaStorage {
+    private final ContentStore contentStore;
+    private final long latencyMs;
+
+    public LocalMediaStorage(ContentStore contentStore, @Value("${app.media.local-latency-ms:0}") long latencyMs) {
+        this.contentStore = contentStore;
+        this.latencyMs = latencyMs;
+    }
+
+    @Override
+    public String store(StoredUpload upload, String folder) throws IOException {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while storing " + upload.path(), e);
+            }
+        }
+        return contentStore.urlOf(contentStore.retainCopy(upload));
+    }
+}
@@ -0,0 +1,139 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import api.backend.model.media.MediaFile;
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.Thumbnails;
+
+/**
+ * Looks up files in the upload directory for serving. Blobs of the
+ * {@link ContentStore} and their thumbnails, like the hash-suffixed avatars
+ * written before it, carry a content hash in their name, which doubles as
+ * their ETag; anything else is hashed once and remembered for as long as its
+ * size and modification time stay the same.
+ */
+@Service
+public class MediaFileService {
+    // A single path segment, and never one of the hidden files uploads are written to
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    // Content store names, and <userId>-<first 16 hex digits>.<ext> from before the store
+    private static final Pattern VERSIONED = Pattern.compile("(?:.*-)?([0-9a-f]{64}|[0-9a-f]{16})(-w\\d+)?\\.[a-z0-9]+");
+    private static final int HASH_LENGTH = 16;
+    // Pre-compressed variants sit next to the file under these suffixes, best first
+    private static final List<Map.Entry<String, String>> ENCODINGS = List.of(
+            Map.entry("br", ".br"),
+            Map.entry("gzip", ".gz"));
+    private static final int MAX_CACHED = 10_000;
+
+    private final Path root;
+    private final ContentStore contentStore;
+    private final Map<String, MediaFile> cache = new ConcurrentHashMap<>();
+
+    public MediaFileService(@Value("${app.upload.dir}") String uploadDir, ContentStore contentStore) {
+        this.root = Paths.get(uploadDir);
+        this.contentStore = contentStore;
+    }
+
+    public Optional<MediaFile> find(String name) {
+        if (name == null || !NAME.matcher(name).matches()) {
+            return Optional.empty();
+        }
+        Path path = contentStore.resolve(name).orElseGet(() -> root.resolve(name));
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            cache.remove(name);
+            return thumbnailFallback(name);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!attributes.isRegularFile()) {
+            return Optional.empty();
+        }
+
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        MediaFile cached = cache.get(name);
+        if (cached != null && cached.length() == attributes.size() && cached.lastModified() == lastModified) {
+            return Optional.of(cached);
+        }
+        MediaFile described = describe(name, path, attributes.size(), lastModified);
+        // Entries of files deleted since are only dropped when asked for, so the map is emptied once it grows
+        if (cache.size() >= MAX_CACHED) {
+            cache.clear();
+        }
+        cache.put(name, described);
+        return Optional.of(described);
+    }
+
+    // A thumbnail not generated yet is stood in for by its original, revalidated so the real one replaces it
+    private Optional<MediaFile> thumbnailFallback(String name) {
+        for (String original : Thumbnails.originalsOf(name)) {
+            Optional<MediaFile> file = find(original);
+            if (file.isPresent()) {
+                return file.map(MediaFile::revalidated);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static MediaFile describe(String name, Path path, long length, long lastModified) {
+        Matcher versioned = VERSIONED.matcher(name);
+        boolean immutable = versioned.matches();
+        String hash = immutable ? versioned.group(1) + (versioned.group(2) != null ? versioned.group(2) : "") : hash(path);
+
+        MediaFormat format = MediaFormat.ofExtension(name.substring(name.lastIndexOf('.') + 1));
+        String contentType = format != null ? format.getContentType() : "application/octet-stream";
+
+        List<MediaFile.Variant> variants = new ArrayList<>();
+        for (Map.Entry<String, String> encoding : ENCODINGS) {
+            Path variant = path.resolveSibling(name + encoding.getValue());
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(variant, BasicFileAttributes.class);
+                // A variant older than its file was compressed from a previous version
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toMillis() >= lastModified) {
+                    variants.add(new MediaFile.Variant(encoding.getKey(), variant, attributes.size(),
+                            "\"" + hash + "-" + encoding.getKey() + "\""));
+                }
+            } catch (IOException e) {
+                // No variant for this encoding
+            }
+        }
+        return new MediaFile(path, contentType, length, lastModified, "\"" + hash + "\"", immutable,
+                List.copyOf(variants));
+    }
+
+    private static String hash(Path path) {
+        MessageDigest digest = UploadStreamer.sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest()).substring(0, HASH_LENGTH);
+    }
+}
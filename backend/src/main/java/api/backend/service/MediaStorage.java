@@ -0,0 +1,20 @@
+package api.backend.service;
+
+import java.io.IOException;
+
+import api.backend.model.media.StoredUpload;
+
+/**
+ * Where uploaded media ends up. One implementation is active, picked by
+ * {@code app.media.storage}: {@code cloudinary}, or {@code local} to keep files
+ * in the upload directory when Cloudinary is unavailable (tests, offline
+ * benchmarks).
+ */
+public interface MediaStorage {
+
+    /**
+     * Stores a spooled upload and returns the URL it is served from. The
+     * spooled file still belongs to the caller. Blocks for the whole transfer.
+     */
+    String store(StoredUpload upload, String folder) throws IOException;
+}
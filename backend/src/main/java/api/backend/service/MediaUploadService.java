@@ -0,0 +1,224 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.MediaUpload;
+import api.backend.model.media.MediaUploadResponse;
+import api.backend.model.media.StoredUpload;
+import api.backend.repository.MediaUploadRepository;
+import api.backend.repository.UserRepository;
+
+/**
+ * Media uploads to the configured {@link MediaStorage}. The asynchronous path
+ * spools the upload to disk and answers at once; the transfer to storage runs
+ * on a bounded pool and its owner is told over {@value #DESTINATION} when it
+ * finishes, or can poll its status. An upload that finds the pool's queue full
+ * stays pending and is handed over again by a poller, so the transfer never
+ * runs on the request thread. Spooled files are local to the node that
+ * accepted them, so each node only resumes and dispatches its own uploads.
+ */
+@Service
+public class MediaUploadService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaUploadService.class);
+
+    public static final String DESTINATION = "/queue/uploads";
+    private static final String FOLDER = "files";
+    private static final Set<MediaFormat.Kind> KINDS = Set.of(MediaFormat.Kind.IMAGE, MediaFormat.Kind.VIDEO);
+
+    private final MediaStorage storage;
+    private final UploadStreamer uploadStreamer;
+    private final MediaUploadRepository uploadRepository;
+    private final UserRepository userRepository;
+    private final ViewerContext viewer;
+    private final UserMessageRelay messageRelay;
+    private final ThreadPoolTaskExecutor executor;
+    private final Path spoolDir;
+    private final DataSize maxSize;
+    private final String nodeId;
+    // Handed to the executor and not finished yet, so the poller does not queue them twice
+    private final Set<Long> dispatched = ConcurrentHashMap.newKeySet();
+
+    public MediaUploadService(MediaStorage storage, UploadStreamer uploadStreamer,
+            MediaUploadRepository uploadRepository, UserRepository userRepository, ViewerContext viewer,
+            UserMessageRelay messageRelay,
+            @Qualifier("mediaUploadExecutor") ThreadPoolTaskExecutor executor,
+            @Value("${app.media.spool-dir}") String spoolDir,
+            @Value("${app.upload.media-max-size}") DataSize maxSize,
+            @Value("${app.cluster.node-id}") String nodeId) {
+        this.storage = storage;
+        this.uploadStreamer = uploadStreamer;
+        this.uploadRepository = uploadRepository;
+        this.userRepository = userRepository;
+        this.viewer = viewer;
+        this.messageRelay = messageRelay;
+        this.executor = executor;
+        this.spoolDir = Paths.get(spoolDir);
+        this.maxSize = maxSize;
+        this.nodeId = nodeId;
+    }
+
+    // Stores the upload before answering, for clients that want the URL in the response
+    public String upload(MultipartFile file) {
+        StoredUpload upload = spool(file);
+        try {
+            return storage.store(upload, FOLDER);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to upload file: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to upload file", e);
+        } finally {
+            deleteSpooled(upload.path().toString());
+        }
+    }
+
+    // Spooled before anything is written, so no connection is held while the upload streams in
+    public MediaUploadResponse submit(MultipartFile file) {
+        return submit(spool(file));
+    }
+
+    // Takes over a file already in the spool directory, such as a finished chunked upload
+    public MediaUploadResponse submit(StoredUpload upload) {
+        MediaUpload pending;
+        try {
+            pending = uploadRepository.save(
+                    new MediaUpload(userRepository.getReferenceById(viewer.getId()), upload, nodeId));
+        } catch (RuntimeException e) {
+            deleteSpooled(upload.path().toString());
+            throw e;
+        }
+        dispatch(pending.getId());
+        return MediaUploadResponse.of(pending);
+    }
+
+    public MediaUploadResponse getUpload(long id) {
+        return uploadRepository.findByIdAndOwnerId(id, viewer.getId())
+                .map(MediaUploadResponse::of)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+    }
+
+    // Pending uploads are left to the poller; only transfers cut off by the last shutdown need resetting
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<MediaUpload> unfinished = uploadRepository.findByNodeAndStatus(nodeId, MediaUpload.Status.UPLOADING);
+        for (MediaUpload upload : unfinished) {
+            if (upload.getSpoolPath() != null && Files.exists(Paths.get(upload.getSpoolPath()))) {
+                upload.setStatus(MediaUpload.Status.PENDING);
+            } else {
+                upload.setStatus(MediaUpload.Status.FAILED);
+                upload.setError("Interrupted by a restart");
+                upload.setCompletedAt(LocalDateTime.now());
+            }
+            uploadRepository.save(upload);
+        }
+        if (!unfinished.isEmpty()) {
+            logger.info("Resumed {} unfinished media uploads", unfinished.size());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.media.dispatch-interval-ms}")
+    public void dispatchPending() {
+        List<Long> pending = uploadRepository.findIdsByNodeAndStatus(nodeId, MediaUpload.Status.PENDING,
+                PageRequest.of(0, executor.getQueueCapacity()));
+        for (long id : pending) {
+            if (!dispatch(id)) {
+                return;
+            }
+        }
+    }
+
+    // False once the queue is full; the upload stays pending for the next poll
+    private boolean dispatch(long id) {
+        if (!dispatched.add(id)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(id);
+                } finally {
+                    dispatched.remove(id);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            dispatched.remove(id);
+            return false;
+        }
+    }
+
+    void process(long id) {
+        MediaUpload upload = uploadRepository.findWithOwnerById(id).orElse(null);
+        if (upload == null || upload.getStatus() == MediaUpload.Status.DONE
+                || upload.getStatus() == MediaUpload.Status.FAILED) {
+            return;
+        }
+        String owner = upload.getOwner().getUsername();
+        StoredUpload spooled = new StoredUpload(Paths.get(upload.getSpoolPath()), upload.getFormat(),
+                upload.getSize(), upload.getSha256());
+        if (!Files.exists(spooled.path())) {
+            upload.setStatus(MediaUpload.Status.FAILED);
+            upload.setError("Interrupted by a restart");
+            upload.setSpoolPath(null);
+            upload.setCompletedAt(LocalDateTime.now());
+            uploadRepository.save(upload);
+            return;
+        }
+        upload.setStatus(MediaUpload.Status.UPLOADING);
+        upload = uploadRepository.save(upload);
+
+        try {
+            upload.setUrl(storage.store(spooled, FOLDER));
+            upload.setStatus(MediaUpload.Status.DONE);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to upload media {}: {}", id, e.getMessage(), e);
+            upload.setStatus(MediaUpload.Status.FAILED);
+            upload.setError("Failed to upload file");
+        }
+        String spoolPath = upload.getSpoolPath();
+        upload.setSpoolPath(null);
+        upload.setCompletedAt(LocalDateTime.now());
+        upload = uploadRepository.save(upload);
+        deleteSpooled(spoolPath);
+
+        try {
+            messageRelay.convertAndSendToUser(owner, DESTINATION,
+                    MediaUploadResponse.of(upload));
+        } catch (RuntimeException e) {
+            // The status endpoint still has it
+            logger.warn("Could not notify the owner of media upload {}: {}", id, e.getMessage());
+        }
+    }
+
+    private StoredUpload spool(MultipartFile file) {
+        return uploadStreamer.spool(file, spoolDir, maxSize.toBytes(), KINDS);
+    }
+
+    private static void deleteSpooled(String path) {
+        try {
+            Files.deleteIfExists(Paths.get(path));
+        } catch (IOException e) {
+            logger.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+}
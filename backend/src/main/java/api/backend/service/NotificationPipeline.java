@@ -0,0 +1,347 @@
+package api.backend.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import api.backend.model.notification.NotificationDeadLetter;
+import api.backend.model.notification.NotificationFanOut;
+import api.backend.model.notification.NotificationResponse;
+import api.backend.model.post.PostCreatedEvent;
+import api.backend.model.user.UserResponse;
+import api.backend.repository.NotificationDeadLetterRepository;
+import api.backend.repository.NotificationFanOutRepository;
+import api.backend.repository.NotificationRepository;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Background delivery of new-post notifications. A post's fan-out is recorded
+ * in {@code notification_fanouts} in the post's own transaction and handed to
+ * the fan-out workers once it commits; if their queue is full it waits for the
+ * poller instead of running on the request thread, and a crash only delays it.
+ * A worker claims the fan-out, pages through the followers and inserts their
+ * notifications in JDBC batches, each committed together with its progress.
+ * Each stored notification is then pushed over WebSocket by a separate stage
+ * that retries with backoff and dead-letters what it cannot deliver.
+ */
+@Service
+public class NotificationPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPipeline.class);
+
+    private static final String DESTINATION = "/queue/new-posts";
+
+    private static final String SELECT_SUBSCRIBERS = "SELECT u.id, u.username FROM users_subscribers s "
+            + "JOIN users u ON u.id = s.subscribers_id "
+            + "WHERE s.subscribed_to_id = ? AND s.subscribers_id > ? ORDER BY s.subscribers_id LIMIT ?";
+
+    private static final String INSERT_NOTIFICATION = "INSERT INTO notifications "
+            + "(recipient_id, sender_id, post_id, read, created_at) VALUES (?, ?, ?, false, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UserRepository userRepository;
+    private final NotificationRepository notificationRepository;
+    private final NotificationDeadLetterRepository deadLetterRepository;
+    private final NotificationFanOutRepository fanOutRepository;
+    private final PostRepository postRepository;
+    private final UserMessageRelay messageRelay;
+    private final ThreadPoolTaskExecutor fanOutExecutor;
+    private final AsyncTaskExecutor deliveryExecutor;
+    private final ThreadPoolTaskScheduler retryScheduler;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long leaseMs;
+    private final int fanOutMaxAttempts;
+    // Handed to the fan-out executor and not finished yet, so the poller does not queue them twice
+    private final Set<Long> dispatched = ConcurrentHashMap.newKeySet();
+
+    private final Timer fanOutLag;
+    private final Timer deliveryLag;
+    private final Counter created;
+    private final Counter retries;
+    private final Counter deadLetters;
+
+    public NotificationPipeline(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            UserRepository userRepository, NotificationRepository notificationRepository,
+            NotificationDeadLetterRepository deadLetterRepository, NotificationFanOutRepository fanOutRepository,
+            PostRepository postRepository, UserMessageRelay messageRelay,
+            @Qualifier("notificationFanOutExecutor") ThreadPoolTaskExecutor fanOutExecutor,
+            @Qualifier("notificationDeliveryExecutor") AsyncTaskExecutor deliveryExecutor,
+            @Qualifier("notificationRetryScheduler") ThreadPoolTaskScheduler retryScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${app.notifications.batch-size}") int batchSize,
+            @Value("${app.notifications.delivery-max-attempts}") int maxAttempts,
+            @Value("${app.notifications.delivery-retry-backoff-ms}") long retryBackoffMs,
+            @Value("${app.notifications.fanout-lease-ms}") long leaseMs,
+            @Value("${app.notifications.fanout-max-attempts}") int fanOutMaxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.userRepository = userRepository;
+        this.notificationRepository = notificationRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.fanOutRepository = fanOutRepository;
+        this.postRepository = postRepository;
+        this.messageRelay = messageRelay;
+        this.fanOutExecutor = fanOutExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+        this.retryScheduler = retryScheduler;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.leaseMs = leaseMs;
+        this.fanOutMaxAttempts = fanOutMaxAttempts;
+
+        Gauge.builder("notifications.fanout.queue.depth", fanOutExecutor, NotificationPipeline::queueDepth)
+                .description("Committed posts queued for a fan-out worker")
+                .register(meterRegistry);
+        Gauge.builder("notifications.delivery.queue.depth", deliveryExecutor, NotificationPipeline::queueDepth)
+                .description("Stored notifications waiting to be pushed over WebSocket")
+                .register(meterRegistry);
+        this.fanOutLag = Timer.builder("notifications.fanout.lag")
+                .description("Time from post commit until its fan-out starts")
+                .register(meterRegistry);
+        this.deliveryLag = Timer.builder("notifications.delivery.lag")
+                .description("Time from post commit until a notification is pushed")
+                .register(meterRegistry);
+        this.created = meterRegistry.counter("notifications.created");
+        this.retries = meterRegistry.counter("notifications.delivery.retries");
+        this.deadLetters = meterRegistry.counter("notifications.delivery.dead_letters");
+    }
+
+    // Recorded in the post's transaction, so every committed post has its fan-out on record
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        long id = fanOutRepository.save(new NotificationFanOut(postRepository.getReferenceById(event.postId()),
+                userRepository.getReferenceById(event.authorId()))).getId();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(id);
+                }
+            });
+        } else {
+            dispatch(id);
+        }
+    }
+
+    // Picks up fan-outs that found the queue full, were released after a failure, or outlived a crashed worker
+    @Scheduled(fixedDelayString = "${app.notifications.fanout-poll-interval-ms}")
+    public void dispatchPending() {
+        List<Long> pending = fanOutRepository.findClaimableIds(LocalDateTime.now(),
+                PageRequest.of(0, fanOutExecutor.getQueueCapacity()));
+        for (long id : pending) {
+            if (!dispatch(id)) {
+                return;
+            }
+        }
+    }
+
+    // False once the queue is full; the fan-out stays on record for the next poll
+    private boolean dispatch(long id) {
+        if (!dispatched.add(id)) {
+            return true;
+        }
+        try {
+            fanOutExecutor.execute(() -> {
+                try {
+                    fanOut(id);
+                } finally {
+                    dispatched.remove(id);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            dispatched.remove(id);
+            return false;
+        }
+    }
+
+    private void fanOut(long id) {
+        String token = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        if (fanOutRepository.claim(id, token, now, now.plus(leaseMs, ChronoUnit.MILLIS)) == 0) {
+            return;
+        }
+        try {
+            Job job = transactionTemplate.execute(status -> fanOutRepository.findById(id)
+                    .map(f -> new Job(f.getPost().getId(), f.getSender().getId(), f.getAfterRecipientId(),
+                            f.getAttempts(), f.getCreatedAt()))
+                    .orElse(null));
+            if (job == null) {
+                return;
+            }
+            if (job.attempts() > fanOutMaxAttempts) {
+                logger.error("Giving up on notifications for post {} after {} attempts", job.postId(),
+                        job.attempts() - 1);
+                fanOutRepository.deleteById(id);
+                return;
+            }
+            fanOutLag.record(Duration.between(job.createdAt(), LocalDateTime.now()));
+
+            // Every recipient is a subscriber of the sender, so the sender is always followed from their side
+            UserResponse sender = transactionTemplate.execute(status -> userRepository.findById(job.senderId())
+                    .map(user -> UserService.toUserResponse(user, true))
+                    .orElse(null));
+            if (sender == null) {
+                fanOutRepository.deleteById(id);
+                return;
+            }
+
+            long after = job.afterRecipientId();
+            while (true) {
+                List<Recipient> recipients = jdbcTemplate.query(SELECT_SUBSCRIBERS,
+                        (rs, i) -> new Recipient(rs.getLong(1), rs.getString(2)),
+                        job.senderId(), after, batchSize);
+                if (recipients.isEmpty()) {
+                    break;
+                }
+
+                LocalDateTime createdAt = LocalDateTime.now();
+                long last = recipients.get(recipients.size() - 1).id();
+                List<Long> ids = transactionTemplate.execute(status -> {
+                    List<Long> inserted = insertBatch(recipients, job, createdAt);
+                    LocalDateTime until = LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS);
+                    if (fanOutRepository.advance(id, token, last, until) == 0) {
+                        throw new IllegalStateException("Lost the claim on the fan-out of post " + job.postId());
+                    }
+                    return inserted;
+                });
+                created.increment(recipients.size());
+
+                for (int i = 0; i < recipients.size(); i++) {
+                    NotificationResponse payload = new NotificationResponse(ids.get(i), sender, job.postId(), false,
+                            createdAt);
+                    deliveryExecutor.execute(new Delivery(recipients.get(i).username(), payload, job.createdAt()));
+                }
+
+                if (recipients.size() < batchSize) {
+                    break;
+                }
+                after = last;
+            }
+            fanOutRepository.deleteById(id);
+        } catch (RuntimeException e) {
+            logger.error("Failed to create notifications for fan-out {}: {}", id, e.getMessage(), e);
+            try {
+                fanOutRepository.release(id, token);
+            } catch (RuntimeException releaseFailure) {
+                // The claim then runs out on its own
+                logger.warn("Could not release fan-out {}: {}", id, releaseFailure.getMessage());
+            }
+        }
+    }
+
+    private List<Long> insertBatch(List<Recipient> recipients, Job job, LocalDateTime createdAt) {
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_NOTIFICATION, new String[] { "id" }),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, recipients.get(i).id());
+                        ps.setLong(2, job.senderId());
+                        ps.setLong(3, job.postId());
+                        ps.setTimestamp(4, timestamp);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return recipients.size();
+                    }
+                }, keyHolder);
+        return keyHolder.getKeyList().stream()
+                .map(key -> ((Number) key.values().iterator().next()).longValue())
+                .toList();
+    }
+
+    private void deadLetter(Delivery delivery, RuntimeException error) {
+        deadLetters.increment();
+        logger.warn("Giving up on notification {} for {} after {} attempts: {}", delivery.payload.id(),
+                delivery.username, delivery.attempts, error.getMessage());
+        try {
+            transactionTemplate.executeWithoutResult(status -> deadLetterRepository.save(new NotificationDeadLetter(
+                    notificationRepository.getReferenceById(delivery.payload.id()),
+                    delivery.username,
+                    DESTINATION,
+                    delivery.attempts,
+                    error.getMessage())));
+        } catch (RuntimeException e) {
+            logger.error("Failed to store dead letter for notification {}: {}", delivery.payload.id(), e.getMessage(), e);
+        }
+    }
+
+    // Virtual-thread executors have no queue; their backlog waits in the submitting thread
+    private static int queueDepth(AsyncTaskExecutor executor) {
+        return executor instanceof ThreadPoolTaskExecutor pool ? pool.getThreadPoolExecutor().getQueue().size() : 0;
+    }
+
+    private record Recipient(long id, String username) {
+    }
+
+    private record Job(long postId, long senderId, long afterRecipientId, int attempts, LocalDateTime createdAt) {
+    }
+
+    private final class Delivery implements Runnable {
+        private final String username;
+        private final NotificationResponse payload;
+        private final LocalDateTime committedAt;
+        private int attempts;
+
+        Delivery(String username, NotificationResponse payload, LocalDateTime committedAt) {
+            this.username = username;
+            this.payload = payload;
+            this.committedAt = committedAt;
+        }
+
+        @Override
+        public void run() {
+            attempts++;
+            try {
+                messageRelay.convertAndSendToUser(username, DESTINATION, payload);
+                deliveryLag.record(Duration.between(committedAt, LocalDateTime.now()));
+            } catch (RuntimeException e) {
+                if (attempts >= maxAttempts) {
+                    deadLetter(this, e);
+                    return;
+                }
+                retries.increment();
+                long backoff = retryBackoffMs << (attempts - 1);
+                retryScheduler.schedule(() -> deliveryExecutor.execute(this), Instant.now().plusMillis(backoff));
+            }
+        }
+    }
+}
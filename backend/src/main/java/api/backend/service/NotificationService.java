@@ -2,18 +2,13 @@ package api.backend.service;
 
 import api.backend.model.notification.Notification;
 import api.backend.model.notification.NotificationResponse;
-import api.backend.model.post.Post;
-import api.backend.model.user.User;
 import api.backend.repository.NotificationRepository;
-import api.backend.repository.UserRepository;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -21,42 +16,11 @@ import java.util.Set;
 public class NotificationService {
 
     private final NotificationRepository notificationRepository;
-    private final SimpMessagingTemplate messagingTemplate; // Inject the template
+    private final ViewerContext viewer;
 
-    public NotificationService(NotificationRepository notificationRepository, UserRepository userRepository, SimpMessagingTemplate messagingTemplate) {
+    public NotificationService(NotificationRepository notificationRepository, ViewerContext viewer) {
         this.notificationRepository = notificationRepository;
-        this.messagingTemplate = messagingTemplate;
-    }
-
-
-    /**
-     * Creates, saves, and sends new post notifications to each of the author's followers.
-     * @param post The newly created post.
-     */
-    public void createAndSendNewPostNotifications(Post post) {
-        User author = post.getUser();
-        Set<User> followers = author.getSubscribers();
-        
-        if (followers.isEmpty()) {
-            return;
-        }
-
-        List<Notification> notificationsToSave = new ArrayList<>();
-
-        for (User follower : followers) {
-            Notification notification = new Notification(follower, author, post);
-            notificationsToSave.add(notification);
-
-            notification = notificationRepository.save(notification);
-            NotificationResponse notificationResponse = toNotificationResponse(notification);
-
-            messagingTemplate.convertAndSendToUser(
-                follower.getUsername(),       // The user (principal name) to send to
-                "/queue/new-posts",           // The private destination
-                notificationResponse          // The payload
-            );
-        }
-
+        this.viewer = viewer;
     }
 
     public long getUnreadCountByUserId(long userID) {
@@ -77,14 +41,18 @@ public class NotificationService {
 
     public List<NotificationResponse> getNotificationByUserId(long userID, long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return notificationRepository.findByReceiverIdAndIdLessThan(userID, cursor, pageable)
-                .map(this::toNotificationResponse).toList();
+        List<Notification> notifications = notificationRepository.findByReceiverIdAndIdLessThan(userID, cursor, pageable)
+                .getContent();
+        Set<Long> followed = viewer.followedAmong(notifications.stream().map(n -> n.getPost().getUser().getId()).toList());
+        return notifications.stream()
+                .map(n -> toNotificationResponse(n, followed.contains(n.getPost().getUser().getId())))
+                .toList();
     }
 
-    public NotificationResponse toNotificationResponse(Notification notification) {
+    public NotificationResponse toNotificationResponse(Notification notification, boolean senderFollowed) {
         return new NotificationResponse(
                 notification.getId(),
-                UserService.toUserResponse(notification.getPost().getUser()),
+                UserService.toUserResponse(notification.getPost().getUser(), senderFollowed),
                 notification.getPost().getId(),
                 notification.isRead(),
                 notification.getCreatedAt());
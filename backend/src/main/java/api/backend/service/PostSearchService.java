@@ -0,0 +1,85 @@
+package api.backend.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import api.backend.model.post.Post;
+import api.backend.model.post.PostSearchHit;
+import api.backend.model.post.PostSearchPage;
+import api.backend.repository.PostRepository;
+
+/**
+ * Ranked full-text search over post titles and contents. The text is indexed
+ * by a stored generated {@code tsvector} column with a GIN index, so Postgres
+ * keeps it in step with every insert, update and delete of a post; results are
+ * ordered by rank and paged with a (rank, id) keyset.
+ */
+@Service
+public class PostSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(PostSearchService.class);
+
+    private static final int PAGE_SIZE = 10;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostRepository postRepository;
+    private final PostService postService;
+    private final String language;
+
+    public PostSearchService(JdbcTemplate jdbcTemplate, PostRepository postRepository, PostService postService,
+            @Value("${app.search.language}") String language) {
+        if (!language.matches("[a-z_]+")) {
+            throw new IllegalArgumentException("Invalid text search configuration: " + language);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.postRepository = postRepository;
+        this.postService = postService;
+        this.language = language;
+    }
+
+    // Hibernate's schema update cannot express generated columns or GIN indexes, so they are created here
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSearchIndex() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) con -> con.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            logger.warn("Post search needs PostgreSQL, {} found; /api/posts/search is unavailable", database);
+            return;
+        }
+        jdbcTemplate.execute("ALTER TABLE posts ADD COLUMN IF NOT EXISTS search_vector tsvector GENERATED ALWAYS AS ("
+                + "setweight(to_tsvector('" + language + "', coalesce(title, '')), 'A') || "
+                + "setweight(to_tsvector('" + language + "', coalesce(content, '')), 'B')) STORED");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_posts_search_vector ON posts USING GIN (search_vector)");
+    }
+
+    public PostSearchPage search(String query, Float rank, Long cursor) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        List<PostSearchHit> hits = rank == null || cursor == null
+                ? postRepository.search(language, query, PAGE_SIZE)
+                : postRepository.searchAfter(language, query, rank, cursor, PAGE_SIZE);
+        if (hits.isEmpty()) {
+            return new PostSearchPage(List.of(), null, null);
+        }
+
+        Map<Long, Post> posts = postRepository.findAllById(hits.stream().map(PostSearchHit::getId).toList()).stream()
+                .collect(Collectors.toMap(Post::getId, Function.identity()));
+        List<Post> ordered = hits.stream().map(hit -> posts.get(hit.getId())).filter(post -> post != null).toList();
+
+        PostSearchHit last = hits.get(hits.size() - 1);
+        boolean more = hits.size() == PAGE_SIZE;
+        return new PostSearchPage(postService.toPostResponses(ordered),
+                more ? last.getRank() : null,
+                more ? last.getId() : null);
+    }
+}
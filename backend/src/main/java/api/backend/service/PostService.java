@@ -4,17 +4,19 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 import api.backend.model.post.Post;
+import api.backend.model.post.PostCreatedEvent;
 import api.backend.model.post.PostRequest;
 import api.backend.model.post.PostResponse;
 import api.backend.model.user.User;
 import api.backend.repository.PostRepository;
+import api.backend.repository.ReportRepository;
 import api.backend.repository.UserRepository;
 import jakarta.transaction.Transactional;
 
@@ -23,19 +25,33 @@ public class PostService {
 
     private PostRepository postRepository;
     private UserRepository userRepository;
-    private final NotificationService notificationService;
+    private final TimelineService timelineService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ViewerContext viewer;
+    private final CounterService counterService;
+    private final ReportRepository reportRepository;
+    private final AdminStatsAggregator stats;
+    private final RollupService rollupService;
 
     PostService(PostRepository postRepository, UserRepository userRepository,
-            NotificationService notificationService) {
+            TimelineService timelineService, ApplicationEventPublisher eventPublisher, ViewerContext viewer,
+            CounterService counterService, ReportRepository reportRepository, AdminStatsAggregator stats,
+            RollupService rollupService) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
-        this.notificationService = notificationService;
+        this.timelineService = timelineService;
+        this.eventPublisher = eventPublisher;
+        this.viewer = viewer;
+        this.counterService = counterService;
+        this.reportRepository = reportRepository;
+        this.stats = stats;
+        this.rollupService = rollupService;
     }
 
     public List<PostResponse> getAllPosts(long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");// , Direction.DESC,"id"
 
-        return postRepository.findAllByIdLessThan(cursor, pageable).stream().map(this::toPostResponse).toList();
+        return toPostResponses(postRepository.findAllByIdLessThan(cursor, pageable).getContent());
     }
 
     public List<PostResponse> getPostsByUsername(long cursor, String username) {
@@ -43,17 +59,11 @@ public class PostService {
 
         User user = userRepository.findByUsername(username).get();
 
-        return postRepository.findByUserAndIdLessThanAndIsHiddenFalse(user, cursor, pageable).stream().map(this::toPostResponse)
-                .toList();
+        return toPostResponses(postRepository.findByUserAndIdLessThanAndIsHiddenFalse(user, cursor, pageable).getContent());
     }
 
     public List<PostResponse> getSubscribedToPosts(long cursor, long user_id) {
-        Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");// , Direction.DESC,"id"
-        User user = userRepository.findById(user_id)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-
-        return postRepository.findPostsBySubscribedTo(user.getSubscribedTo(), cursor, pageable)
-                .map(this::toPostResponse).toList();
+        return toPostResponses(timelineService.getFeed(user_id, cursor, 10));
     }
 
     public PostResponse getPostById(long id) {
@@ -70,16 +80,23 @@ public class PostService {
         User user = userRepository.findById(currentUser.getId()).get();
         Post post = new Post(user, postRequest.title(), postRequest.content(), LocalDateTime.now());
         Post savedPost = postRepository.save(post);
+        userRepository.incrementPostsCount(user.getId(), 1);
+        stats.postCreated(savedPost.getCreatedAt());
 
-        notificationService.createAndSendNewPostNotifications(savedPost);
+        timelineService.fanOut(savedPost);
+        // Notifications are created in the background once this transaction commits
+        eventPublisher.publishEvent(new PostCreatedEvent(savedPost.getId(), user.getId()));
 
-        return toPostResponse(post);
+        return toPostResponse(post, false, false);
     }
 
     @Transactional
     public String deletePost(long id) {
         var blog = postRepository.findById(id).get();
+        // Reports on the post are removed with it by the database
+        stats.postDeleted(blog.getCreatedAt(), reportRepository.findTalliesByPostId(id));
         this.postRepository.delete(blog);
+        userRepository.incrementPostsCount(blog.getUser().getId(), -1);
         return "Post deleted successfully";
     }
 
@@ -99,49 +116,50 @@ public class PostService {
     }
 
     // likes
-    @Transactional
+    // Each statement changes at most one row, so concurrent toggles cannot both count; 0 means another request won
     public int likePost(long postId, long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Target post not found"));
-
-        Set<User> likes = post.getLikes();
-        if (likes.contains(user)) {
-            likes.remove(user);
-            post.setLikesCount(post.getLikesCount() - 1);
-            postRepository.save(post);
+        if (!postRepository.existsById(postId)) {
+            throw new IllegalArgumentException("Target post not found");
+        }
+        if (postRepository.deleteLike(postId, userId) > 0) {
+            counterService.add(CounterService.Field.POST_LIKES, postId, -1);
             return -1;
-        } else {
-            likes.add(user);
-            post.setLikesCount(post.getLikesCount() + 1);
-            postRepository.save(post);
+        }
+        if (postRepository.insertLike(postId, userId) > 0) {
+            counterService.add(CounterService.Field.POST_LIKES, postId, 1);
+            rollupService.record(RollupService.Event.LIKES);
             return 1;
         }
+        return 0;
     }
 
     public PostResponse toPostResponse(Post post) {
-        User currentUser = getCurrentUser();
-        boolean likedByCurrentUser = false;
-        if (currentUser != null) {
-            likedByCurrentUser = post.getLikes().contains(currentUser);
+        return toPostResponses(List.of(post)).get(0);
+    }
+
+    // Liked and followed state for the whole page comes from the viewer context in one query each
+    public List<PostResponse> toPostResponses(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
         }
+        Set<Long> likedPostIds = viewer.likedPostsAmong(posts.stream().map(Post::getId).toList());
+        Set<Long> followedAuthorIds = viewer.followedAmong(posts.stream().map(post -> post.getUser().getId()).toList());
+        return posts.stream()
+                .map(post -> toPostResponse(post, likedPostIds.contains(post.getId()),
+                        followedAuthorIds.contains(post.getUser().getId())))
+                .toList();
+    }
 
+    private PostResponse toPostResponse(Post post, boolean likedByCurrentUser, boolean authorFollowed) {
         return new PostResponse(
                 post.getId(),
-                (UserService.toUserResponse(post.getUser())),
+                (UserService.toUserResponse(post.getUser(), authorFollowed)),
                 post.getTitle(),
                 post.getContent(),
                 post.getCreatedAt(),
-                post.getLikesCount(),
-                post.getCommentsCount(),
+                (int) counterService.current(CounterService.Field.POST_LIKES, post.getId(), post.getLikesCount()),
+                (int) counterService.current(CounterService.Field.POST_COMMENTS, post.getId(), post.getCommentsCount()),
                 likedByCurrentUser,
                 post.isHidden());
     }
-
-    private User getCurrentUser() {
-        long userId = ((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getId();
-        return userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-    }
 }
\ No newline at end of file
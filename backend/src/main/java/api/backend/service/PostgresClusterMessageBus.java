@@ -0,0 +1,145 @@
+package api.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Publishes with {@code pg_notify} on a pooled connection and listens on one
+ * connection it keeps to itself, polled by a single thread. If that
+ * connection drops, the thread opens another one and listens again.
+ * Postgres caps a notification at 8000 bytes, so larger messages are refused.
+ */
+@Service
+@ConditionalOnProperty(name = "app.cluster.bus", havingValue = "postgres")
+public class PostgresClusterMessageBus implements ClusterMessageBus {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresClusterMessageBus.class);
+
+    private static final int MAX_MESSAGE_BYTES = 7999;
+    private static final int POLL_MS = 500;
+    private static final long RECONNECT_BACKOFF_MS = 2000;
+    // Used unquoted in LISTEN
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, List<Consumer<String>>> subscribers = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private Thread listener;
+
+    public PostgresClusterMessageBus(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        if (message.getBytes(StandardCharsets.UTF_8).length > MAX_MESSAGE_BYTES) {
+            throw new IllegalArgumentException("Message too large for NOTIFY on " + channel);
+        }
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, channel, message);
+    }
+
+    @Override
+    public int maxMessageBytes() {
+        return MAX_MESSAGE_BYTES;
+    }
+
+    @Override
+    public void subscribe(String channel, Consumer<String> handler) {
+        if (!CHANNEL.matcher(channel).matches()) {
+            throw new IllegalArgumentException("Invalid channel name: " + channel);
+        }
+        subscribers.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(handler);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "cluster-bus-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+            listener.join(POLL_MS * 4L);
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                Set<String> listening = new HashSet<>();
+                logger.info("Listening for cluster messages");
+                while (running) {
+                    // Channels subscribed since the last poll
+                    for (String channel : subscribers.keySet()) {
+                        if (listening.add(channel)) {
+                            try (Statement statement = connection.createStatement()) {
+                                statement.execute("LISTEN " + channel);
+                            }
+                        }
+                    }
+                    PGNotification[] received = notifications.getNotifications(POLL_MS);
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            dispatch(notification.getName(), notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Cluster message listener failed, reconnecting in {} ms: {}", RECONNECT_BACKOFF_MS,
+                        e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_BACKOFF_MS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String channel, String message) {
+        for (Consumer<String> handler : subscribers.getOrDefault(channel, List.of())) {
+            try {
+                handler.accept(message);
+            } catch (RuntimeException e) {
+                logger.error("Handler for {} failed: {}", channel, e.getMessage(), e);
+            }
+        }
+    }
+}
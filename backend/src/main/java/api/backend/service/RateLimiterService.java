@@ -1,27 +1,170 @@
 package api.backend.service;
 
-import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.util.AntPathMatcher;
 
-import io.github.resilience4j.ratelimiter.RateLimiter;
-import io.github.resilience4j.ratelimiter.RateLimiterConfig;
-import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
+import api.backend.exception.RateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
+/**
+ * Per-client token buckets. Clients are spread over lock stripes, each an
+ * access-ordered map capped at its share of {@code app.rate-limit.max-clients},
+ * so the least recently seen client is dropped first when the cap is reached
+ * and buckets idle long enough to have refilled are swept out periodically.
+ * Tokens are counted in thousandths so cheap endpoints can cost less than one
+ * request.
+ */
 @Service
 public class RateLimiterService {
 
+    private static final long UNIT = 1000;
+    private static final long DEFAULT_COST = UNIT;
 
-    // Factory to create new limiters
-    private final RateLimiterConfig config = RateLimiterConfig.custom()
-        .limitRefreshPeriod(Duration.ofSeconds(1))
-        .limitForPeriod(10) // 10 attempts per IP
-        .timeoutDuration(Duration.ZERO)
-        .build();
+    // First match wins
+    private static final List<CostClass> COST_CLASSES = List.of(
+            new CostClass("/api/notifications/unread-count", UNIT / 2),
+            new CostClass("/api/users/search", 3 * UNIT),
+            new CostClass("/api/posts/search", 3 * UNIT),
+            new CostClass("/api/media/uploads/*", UNIT),
+            new CostClass("/api/media/sessions/**", UNIT),
+            new CostClass("/api/media/**", 5 * UNIT));
 
-    private final RateLimiterRegistry registry = RateLimiterRegistry.of(config);
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Stripe[] stripes;
+    private final long capacity;
+    private final long refillNanosPerToken;
+    private final long idleNanos;
+    private final Counter rejected;
 
-    public RateLimiter allowRequest(String userId) {
-        return registry.rateLimiter(userId);
+    public RateLimiterService(
+            @Value("${app.rate-limit.capacity}") int capacity,
+            @Value("${app.rate-limit.refill-per-second}") int refillPerSecond,
+            @Value("${app.rate-limit.max-clients}") int maxClients,
+            @Value("${app.rate-limit.stripes}") int stripeCount,
+            MeterRegistry meterRegistry) {
+        this.capacity = capacity * UNIT;
+        this.refillNanosPerToken = Math.max(1, TimeUnit.SECONDS.toNanos(1) / (refillPerSecond * UNIT));
+        // An idle bucket is full again after this long, so forgetting it changes nothing
+        this.idleNanos = this.capacity * refillNanosPerToken;
+        this.stripes = new Stripe[stripeCount];
+        int perStripe = Math.max(1, maxClients / stripeCount);
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+
+        this.rejected = meterRegistry.counter("ratelimit.rejected");
+        Gauge.builder("ratelimit.clients", this, RateLimiterService::trackedClients)
+                .description("Clients with a live token bucket")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Charges the request to the client's bucket, throwing
+     * {@link RateLimitExceededException} when it does not hold enough tokens.
+     */
+    public void acquire(String clientKey, String path) {
+        long cost = costOf(path);
+        long now = System.nanoTime();
+        Stripe stripe = stripes[Math.floorMod(clientKey.hashCode(), stripes.length)];
+
+        long waitNanos;
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(clientKey);
+            if (bucket == null) {
+                bucket = new Bucket(capacity, now);
+                stripe.buckets.put(clientKey, bucket);
+            } else {
+                bucket.refill(now, capacity, refillNanosPerToken);
+            }
+            if (bucket.tokens >= cost) {
+                bucket.tokens -= cost;
+                return;
+            }
+            waitNanos = (cost - bucket.tokens) * refillNanosPerToken;
+        }
+        rejected.increment();
+        throw new RateLimitExceededException(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-interval-ms}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                // Access order puts the longest idle buckets first
+                Iterator<Bucket> buckets = stripe.buckets.values().iterator();
+                while (buckets.hasNext()) {
+                    if (now - buckets.next().lastRefill < idleNanos) {
+                        break;
+                    }
+                    buckets.remove();
+                }
+            }
+        }
+    }
+
+    private long costOf(String path) {
+        if (path != null) {
+            for (CostClass costClass : COST_CLASSES) {
+                if (pathMatcher.match(costClass.pattern(), path)) {
+                    return costClass.cost();
+                }
+            }
+        }
+        return DEFAULT_COST;
+    }
+
+    private int trackedClients() {
+        int total = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                total += stripe.buckets.size();
+            }
+        }
+        return total;
+    }
+
+    private record CostClass(String pattern, long cost) {
+    }
+
+    private static final class Bucket {
+        long tokens;
+        long lastRefill;
+
+        Bucket(long tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        void refill(long now, long capacity, long refillNanosPerToken) {
+            long earned = (now - lastRefill) / refillNanosPerToken;
+            if (earned > 0) {
+                tokens = Math.min(capacity, tokens + earned);
+                lastRefill = tokens == capacity ? now : lastRefill + earned * refillNanosPerToken;
+            }
+        }
+    }
+
+    private static final class Stripe {
+        final LinkedHashMap<String, Bucket> buckets;
+
+        Stripe(int maxEntries) {
+            this.buckets = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
     }
-}
\ No newline at end of file
+}
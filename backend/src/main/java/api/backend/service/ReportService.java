@@ -1,48 +1,65 @@
 package api.backend.service;
 
+import api.backend.model.media.Thumbnails;
 import api.backend.model.post.Post;
 import api.backend.model.report.Report;
+import api.backend.model.report.ReportGroup;
+import api.backend.model.report.ReportGroupResponse;
+import api.backend.model.report.ReportGroupRow;
 import api.backend.model.report.ReportRequest;
+import api.backend.model.report.ReportRow;
 import api.backend.model.report.ReportResponse;
+import api.backend.model.user.AdminUserResponse;
 import api.backend.model.user.User;
 import api.backend.repository.PostRepository;
+import api.backend.repository.ReportGroupRepository;
 import api.backend.repository.ReportRepository;
 import api.backend.repository.UserRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort.Direction;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Service
 public class ReportService {
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
 
     private final ReportRepository reportRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final ViewerContext viewer;
+    private final AdminStatsAggregator stats;
+    private final ReportGroupRepository reportGroupRepository;
 
-    public ReportService(ReportRepository reportRepository, PostRepository postRepository, UserRepository userRepository) {
+    public ReportService(ReportRepository reportRepository, PostRepository postRepository, UserRepository userRepository,
+            ViewerContext viewer, AdminStatsAggregator stats, ReportGroupRepository reportGroupRepository) {
         this.reportRepository = reportRepository;
+        this.reportGroupRepository = reportGroupRepository;
         this.postRepository = postRepository;
         this.userRepository = userRepository;
+        this.viewer = viewer;
+        this.stats = stats;
     }
 
-    @Transactional
     public ReportResponse getReportById(Long id) {
-        Report report = reportRepository.findById(id).get();
-        return toReportResponse(report);
+        ReportRow row = reportRepository.findRowById(id).orElseThrow(() -> new EntityNotFoundException("Report not found"));
+        return toReportResponses(List.of(row)).get(0);
     }
 
+    @Transactional
     public String resolveReport(Long id, User reviewer) {
-        Report report = reportRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Report not found"));
-        report.setStatus(Report.Status.RESOLVED);
-        report.setReviewedAt(LocalDateTime.now());
-        reportRepository.save(report);
+        review(id, Report.Status.RESOLVED);
         return "Report resolved successfully";
     }
 
@@ -53,7 +70,7 @@ public class ReportService {
         }
 
         Report report = new Report();
-        report.setReporter(reporter);
+        report.setReporter(userRepository.getReferenceById(reporter.getId()));
         report.setReason(request.reason());
 
         if (request.reportedPostId() != null) {
@@ -69,39 +86,145 @@ public class ReportService {
         }
 
         Report savedReport = reportRepository.save(report);
-
-        return toReportResponse(savedReport);
+        Long postId = request.reportedPostId();
+        long reportedId = savedReport.getReported().getId();
+        String targetKey = ReportGroup.targetKey(postId, reportedId);
+        reportGroupRepository.insertIfAbsent(targetKey, reportedId, postId, savedReport.getCreatedAt());
+        reportGroupRepository.addReport(targetKey, savedReport.getCreatedAt(), ReportGroup.recency(savedReport.getCreatedAt()));
+        stats.reportSubmitted(savedReport);
+
+        return getReportById(savedReport.getId());
     }
 
+    @Transactional
     public String dismissReport(Long id, User reviewer) {
+        review(id, Report.Status.DISMISSED);
+        return "Report dismissed successfully";
+    }
+
+    private void review(long id, Report.Status status) {
         Report report = reportRepository.findById(id).orElseThrow(() -> new EntityNotFoundException("Report not found"));
-        report.setStatus(Report.Status.DISMISSED);
+        Report.Status previous = report.getStatus();
+        report.setStatus(status);
         report.setReviewedAt(LocalDateTime.now());
         reportRepository.save(report);
-        return "Report dismissed successfully";
+        if (previous == Report.Status.PENDING) {
+            reportGroupRepository.reviewOne(ReportGroup.targetKey(
+                    report.getPost() != null ? report.getPost().getId() : null, report.getReported().getId()),
+                    status, report.getReviewedAt());
+        }
+        stats.reportStatusChanged(previous, status);
+    }
+
+    /**
+     * Triage entries with the given status, highest priority first. The
+     * {@code priority} and {@code cursor} of the last entry of a page fetch the
+     * next one.
+     */
+    public List<ReportGroupResponse> getReportGroups(String status, Double priority, Long cursor) {
+        Report.Status statusFilter = parseStatus(status == null || status.isBlank() ? "pending" : status);
+        List<ReportGroupRow> rows = priority == null || cursor == null
+                ? reportGroupRepository.findTriage(statusFilter, Double.MAX_VALUE, Long.MAX_VALUE, PageRequest.of(0, 10))
+                : reportGroupRepository.findTriage(statusFilter, priority, cursor, PageRequest.of(0, 10));
+        return toReportGroupResponses(rows);
     }
 
+    public ReportGroupResponse getReportGroupById(long id) {
+        ReportGroupRow row = reportGroupRepository.findRowById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Report group not found"));
+        return toReportGroupResponses(List.of(row)).get(0);
+    }
+
+    // Reviews every pending report of the target with one UPDATE
     @Transactional
-    public List<ReportResponse> getAllReports(long cursor) {
-        Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
+    public String reviewReportGroup(long id, Report.Status status) {
+        ReportGroup group = reportGroupRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Report group not found"));
+        LocalDateTime now = LocalDateTime.now();
+        int reviewed = reportRepository.reviewPendingForTarget(group.getPost() != null ? group.getPost().getId() : null,
+                group.getReported().getId(), status, now);
+        reportGroupRepository.reviewAll(id, status, now);
+        stats.reportStatusChanged(Report.Status.PENDING, status, reviewed);
+        return reviewed + " reports " + status.toString().toLowerCase(Locale.ROOT);
+    }
+
+    // Groups the reports filed before report groups existed
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillGroups() {
+        if (reportGroupRepository.count() > 0) {
+            return;
+        }
+        List<ReportGroup> groups = reportRepository.findTargetTallies().stream().map(tally -> {
+            ReportGroup group = new ReportGroup();
+            group.setTargetKey(ReportGroup.targetKey(tally.postId(), tally.reportedId()));
+            group.setReported(userRepository.getReferenceById(tally.reportedId()));
+            group.setPost(tally.postId() != null ? postRepository.getReferenceById(tally.postId()) : null);
+            group.setReportCount((int) tally.reportCount());
+            group.setPendingCount((int) tally.pendingCount());
+            group.setFirstReportedAt(tally.firstReportedAt());
+            group.setLastReportedAt(tally.lastReportedAt());
+            group.setPriority(ReportGroup.priority(group.getPendingCount(), tally.lastReportedAt()));
+            group.setStatus(tally.pendingCount() > 0 ? Report.Status.PENDING : Report.Status.RESOLVED);
+            return group;
+        }).toList();
+        reportGroupRepository.saveAll(groups);
+        if (!groups.isEmpty()) {
+            logger.info("Grouped existing reports into {} report groups", groups.size());
+        }
+    }
+
+    /**
+     * One page of the moderation queue, newest first. Each page is one
+     * projection query plus one for the viewer's follow flags, however many
+     * reports it holds.
+     */
+    public List<ReportResponse> getReports(long cursor, String status, String target, Long reportedId) {
+        Report.Status statusFilter = status == null || status.isBlank() ? null : parseStatus(status);
+        String targetFilter = target == null || target.isBlank() ? "all" : target.toLowerCase(Locale.ROOT);
+        if (!List.of("all", "post", "user").contains(targetFilter)) {
+            throw new IllegalArgumentException("Target must be all, post or user");
+        }
+
+        return toReportResponses(reportRepository.findQueue(cursor, statusFilter, targetFilter, reportedId,
+                PageRequest.of(0, 10)));
+    }
+
+    private static Report.Status parseStatus(String status) {
+        try {
+            return Report.Status.valueOf(status.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown report status: " + status);
+        }
+    }
 
-        return reportRepository.findAllByIdLessThan(cursor, pageable).stream().map(this::toReportResponse).toList();
+    public List<ReportGroupResponse> toReportGroupResponses(List<ReportGroupRow> rows) {
+        Set<Long> followed = viewer.followedAmong(rows.stream().map(ReportGroupRow::reportedId).toList());
+        return rows.stream().map(row -> new ReportGroupResponse(row.id(),
+                row.postId() != null ? "post" : "user",
+                row.postId(),
+                row.postTitle(),
+                row.postHidden() != null && row.postHidden(),
+                new AdminUserResponse(row.reportedId(), row.reportedFullName(), row.reportedUsername(),
+                        row.reportedEmail(), row.reportedRole(), row.reportedAvatar(), Thumbnails.urls(row.reportedAvatar()),
+                        row.reportedCreatedAt(),
+                        row.reportedPostsCount(), row.reportedFollowersCount(), row.reportedFollowingCount(),
+                        followed.contains(row.reportedId()),
+                        row.reportedBannedUntil() != null && row.reportedBannedUntil().isAfter(LocalDateTime.now()),
+                        row.reportedBannedUntil()),
+                row.reportCount(),
+                row.pendingCount(),
+                row.firstReportedAt(),
+                row.lastReportedAt(),
+                row.priority(),
+                row.status().toString(),
+                row.reviewedAt()))
+                .toList();
     }
 
-    public ReportResponse toReportResponse(Report report) {
-        User reporter = userRepository.findById(report.getReporter().getId())
-                .orElseThrow(() -> new EntityNotFoundException("Reporter not found"));
-        User reported = userRepository.findById(report.getReported().getId())
-                .orElseThrow(() -> new EntityNotFoundException("Reported user not found"));
-
-        return new ReportResponse(report.getId(),
-                UserService.toUserResponse(reporter),
-                UserService.toAdminUserResponse(reported),
-                report.getReason(),
-                report.getStatus().toString(),
-                report.getCreatedAt(),
-                report.getReviewedAt(),
-                (report.getPost() != null ? report.getPost().getId() : null),
-                (report.getPost() != null ? report.getPost().isHidden() : false));
+    public List<ReportResponse> toReportResponses(List<ReportRow> rows) {
+        Set<Long> followed = viewer.followedAmong(rows.stream()
+                .flatMap(row -> Stream.of(row.reporterId(), row.reportedId()))
+                .toList());
+        return rows.stream().map(row -> row.toResponse(followed)).toList();
     }
 }
\ No newline at end of file
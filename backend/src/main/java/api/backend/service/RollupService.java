@@ -0,0 +1,222 @@
+package api.backend.service;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import api.backend.model.stats.DailyRollup;
+import api.backend.model.stats.Granularity;
+import api.backend.model.stats.RollupPoint;
+import api.backend.repository.DailyRollupRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps {@link DailyRollup} rows up to date and serves the admin time series
+ * from them. Every {@code app.rollups.interval-ms} the days since yesterday
+ * are recounted from the created_at of users, posts, comments and reports,
+ * so only the newest rows are scanned, and the likes and bans recorded since
+ * the last run are added to their day. The first run after startup also
+ * backfills every day that has no rollup yet.
+ */
+@Service
+public class RollupService {
+    private static final Logger logger = LoggerFactory.getLogger(RollupService.class);
+
+    private static final int MAX_DAYS = 3700;
+
+    private static final Map<String, String> COUNTED = Map.of(
+            "signups", "users",
+            "posts", "posts",
+            "comments", "comments",
+            "reports", "reports");
+
+    public enum Event {
+        LIKES("likes"),
+        BANS("bans");
+
+        private final String column;
+
+        Event(String column) {
+            this.column = column;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DailyRollupRepository rollupRepository;
+    // Guarded by itself
+    private final Map<LocalDate, Map<Event, Long>> pending = new HashMap<>();
+
+    public RollupService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+            DailyRollupRepository rollupRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.rollupRepository = rollupRepository;
+    }
+
+    public void record(Event event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(LocalDate.now(), Map.of(event, 1L));
+                }
+            });
+        } else {
+            add(LocalDate.now(), Map.of(event, 1L));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        LocalDate latest = rollupRepository.findLatestDay();
+        LocalDate from = latest != null ? latest : earliestActivity();
+        long started = System.nanoTime();
+        roll(from);
+        logger.info("Rolled up daily stats from {} in {} ms", from, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Yesterday is recounted too, for rows committed around midnight after the previous run
+    @Scheduled(initialDelayString = "${app.rollups.interval-ms}", fixedDelayString = "${app.rollups.interval-ms}")
+    public void rollRecent() {
+        roll(LocalDate.now().minusDays(1));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        rollRecent();
+    }
+
+    public List<RollupPoint> getTimeseries(LocalDate from, LocalDate to, String granularity) {
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = to.minusDays(29);
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("Time range cannot exceed " + MAX_DAYS + " days");
+        }
+        Granularity step;
+        try {
+            step = Granularity.valueOf(granularity.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Granularity must be day, week or month");
+        }
+
+        // Every bucket is listed, empty ones included, so charts need no gap filling
+        Map<LocalDate, long[]> buckets = new LinkedHashMap<>();
+        for (LocalDate bucket = step.bucketOf(from); !bucket.isAfter(to); bucket = step.next(bucket)) {
+            buckets.put(bucket, new long[6]);
+        }
+        for (DailyRollup day : rollupRepository.findByDayBetweenOrderByDay(from, to)) {
+            long[] sums = buckets.get(step.bucketOf(day.getDay()));
+            sums[0] += day.getSignups();
+            sums[1] += day.getPosts();
+            sums[2] += day.getComments();
+            sums[3] += day.getLikes();
+            sums[4] += day.getReports();
+            sums[5] += day.getBans();
+        }
+
+        List<RollupPoint> points = new ArrayList<>(buckets.size());
+        buckets.forEach((start, sums) -> points.add(
+                new RollupPoint(start, sums[0], sums[1], sums[2], sums[3], sums[4], sums[5])));
+        return points;
+    }
+
+    private synchronized void roll(LocalDate from) {
+        Timestamp since = Timestamp.valueOf(from.atStartOfDay());
+        Map<String, Map<LocalDate, Long>> counted = new HashMap<>();
+        TreeSet<LocalDate> days = new TreeSet<>();
+        COUNTED.forEach((column, table) -> {
+            Map<LocalDate, Long> perDay = new HashMap<>();
+            jdbcTemplate.query("SELECT CAST(created_at AS DATE) AS created_on, COUNT(*) AS total FROM " + table
+                    + " WHERE created_at >= ? GROUP BY CAST(created_at AS DATE)",
+                    rs -> {
+                        perDay.put(rs.getDate("created_on").toLocalDate(), rs.getLong("total"));
+                    }, since);
+            counted.put(column, perDay);
+            days.addAll(perDay.keySet());
+        });
+        Map<LocalDate, Map<Event, Long>> events = drain();
+        days.addAll(events.keySet());
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (LocalDate day : days) {
+                    Date date = Date.valueOf(day);
+                    jdbcTemplate.update("INSERT INTO daily_rollups (stat_day, signups, posts, comments, likes, reports, bans) "
+                            + "SELECT ?, 0, 0, 0, 0, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM daily_rollups WHERE stat_day = ?)",
+                            date, date);
+                    if (!day.isBefore(from)) {
+                        jdbcTemplate.update("UPDATE daily_rollups SET signups = ?, posts = ?, comments = ?, reports = ? WHERE stat_day = ?",
+                                counted.get("signups").getOrDefault(day, 0L),
+                                counted.get("posts").getOrDefault(day, 0L),
+                                counted.get("comments").getOrDefault(day, 0L),
+                                counted.get("reports").getOrDefault(day, 0L),
+                                date);
+                    }
+                    for (Map.Entry<Event, Long> event : events.getOrDefault(day, Map.of()).entrySet()) {
+                        String column = event.getKey().column;
+                        jdbcTemplate.update("UPDATE daily_rollups SET " + column + " = " + column + " + ? WHERE stat_day = ?",
+                                event.getValue(), date);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            events.forEach(this::add);
+            throw e;
+        }
+    }
+
+    private LocalDate earliestActivity() {
+        LocalDate earliest = LocalDate.now();
+        for (String table : COUNTED.values()) {
+            LocalDateTime first = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM " + table, LocalDateTime.class);
+            if (first != null && first.toLocalDate().isBefore(earliest)) {
+                earliest = first.toLocalDate();
+            }
+        }
+        return earliest;
+    }
+
+    private void add(LocalDate day, Map<Event, Long> deltas) {
+        synchronized (pending) {
+            Map<Event, Long> counts = pending.computeIfAbsent(day, d -> new EnumMap<>(Event.class));
+            deltas.forEach((event, delta) -> counts.merge(event, delta, Long::sum));
+        }
+    }
+
+    private Map<LocalDate, Map<Event, Long>> drain() {
+        synchronized (pending) {
+            Map<LocalDate, Map<Event, Long>> drained = new HashMap<>(pending);
+            pending.clear();
+            return drained;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package api.backend.service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import api.backend.model.post.Post;
+import api.backend.repository.PostRepository;
+import api.backend.repository.TimelineRepository;
+import api.backend.repository.UserRepository;
+
+/**
+ * Materialized home timelines. Posts are pushed to every follower's timeline
+ * when they are created; posts by authors with more than
+ * {@code app.feed.fanout-threshold} subscribers are skipped on write and merged
+ * into the feed at read time instead. Which side a post is on is recorded on
+ * the post, so it stays in feeds when its author crosses the threshold later.
+ */
+@Service
+public class TimelineService {
+    private static final Logger logger = LoggerFactory.getLogger(TimelineService.class);
+
+    private final TimelineRepository timelineRepository;
+    private final PostRepository postRepository;
+    private final UserRepository userRepository;
+    private final int fanOutThreshold;
+
+    public TimelineService(TimelineRepository timelineRepository, PostRepository postRepository,
+            UserRepository userRepository, @Value("${app.feed.fanout-threshold}") int fanOutThreshold) {
+        this.timelineRepository = timelineRepository;
+        this.postRepository = postRepository;
+        this.userRepository = userRepository;
+        this.fanOutThreshold = fanOutThreshold;
+    }
+
+    public void fanOut(Post post) {
+        if (isAboveThreshold(post.getUser().getId())) {
+            return;
+        }
+        post.setFannedOut(true);
+        timelineRepository.fanOut(post.getId());
+    }
+
+    // Only fanned out posts are copied, the others are already pulled at read time
+    public void follow(long followerId, long authorId) {
+        timelineRepository.backfillAuthor(followerId, authorId);
+    }
+
+    public void unfollow(long followerId, long authorId) {
+        timelineRepository.removeAuthor(followerId, authorId);
+    }
+
+    /**
+     * Returns up to {@code size} feed posts with an id below {@code cursor},
+     * newest first.
+     */
+    public List<Post> getFeed(long userId, long cursor, int size) {
+        Pageable page = PageRequest.of(0, size);
+        List<Post> pushed = timelineRepository.findFeed(userId, cursor, page);
+
+        List<Post> pulled = postRepository.findNotFannedOutFeed(userId, cursor, page);
+        if (pulled.isEmpty()) {
+            return pushed;
+        }
+
+        // Posts from before fannedOut was recorded can come from both sides until they are marked
+        Map<Long, Post> merged = Stream.concat(pushed.stream(), pulled.stream())
+                .collect(Collectors.toMap(Post::getId, p -> p, (a, b) -> a,
+                        () -> new TreeMap<>(Comparator.reverseOrder())));
+        return merged.values().stream().limit(size).toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (postRepository.count() == 0) {
+            return;
+        }
+        if (timelineRepository.findFirstByOrderByIdAsc().isPresent()) {
+            // Posts pushed before fannedOut was recorded
+            int marked = postRepository.markFannedOutFromTimelines();
+            if (marked > 0) {
+                logger.info("Marked {} posts already in home timelines as fanned out", marked);
+            }
+            return;
+        }
+        postRepository.markFannedOutBelow(fanOutThreshold);
+        int inserted = timelineRepository.rebuild();
+        logger.info("Built home timelines from existing posts: {} entries", inserted);
+    }
+
+    private boolean isAboveThreshold(long authorId) {
+        return userRepository.countSubscribers(authorId) > fanOutThreshold;
+    }
+}
@@ -0,0 +1,101 @@
+package api.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import api.backend.exception.UploadTooLargeException;
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.StoredUpload;
+
+/**
+ * Copies multipart uploads to disk through one fixed size buffer per upload,
+ * so an upload never sits in the heap whatever its size. The format is sniffed
+ * from the first bytes and the size limit is checked as bytes arrive; a file
+ * that fails either is never left behind. The content is hashed on the way
+ * through, which is what {@link ContentStore} keys files by.
+ */
+@Service
+public class UploadStreamer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Streams the upload into a new file in {@code directory} that the caller
+     * deletes once it is done with it.
+     */
+    public StoredUpload spool(MultipartFile file, Path directory, long maxBytes, Set<MediaFormat.Kind> kinds) {
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, "upload-", ".part");
+            return copy(file, temp, maxBytes, kinds);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store upload", e);
+        }
+    }
+
+    private StoredUpload copy(MultipartFile file, Path temp, long maxBytes, Set<MediaFormat.Kind> kinds)
+            throws IOException {
+        boolean stored = false;
+        try {
+            // Rejected before reading anything when the part already says it is too large
+            if (file.getSize() > maxBytes) {
+                throw new UploadTooLargeException(maxBytes);
+            }
+            byte[] buffer = new byte[BUFFER_SIZE];
+            MessageDigest digest = sha256();
+            try (InputStream in = file.getInputStream();
+                    FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                int filled = 0;
+                int read;
+                while (filled < MediaFormat.HEADER_BYTES && (read = in.read(buffer, filled, buffer.length - filled)) > 0) {
+                    filled += read;
+                }
+                MediaFormat format = MediaFormat.sniff(buffer, filled);
+                if (format == null || !kinds.contains(format.getKind())) {
+                    throw new IllegalArgumentException("type not allowed");
+                }
+
+                long size = 0;
+                while (filled > 0) {
+                    size += filled;
+                    if (size > maxBytes) {
+                        throw new UploadTooLargeException(maxBytes);
+                    }
+                    digest.update(buffer, 0, filled);
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, filled);
+                    while (chunk.hasRemaining()) {
+                        out.write(chunk);
+                    }
+                    filled = Math.max(in.read(buffer), 0);
+                }
+                stored = true;
+                return new StoredUpload(temp, format, size, HexFormat.of().formatHex(digest.digest()));
+            }
+        } finally {
+            if (!stored) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package api.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Sends to a user's STOMP sessions on whichever backend node holds them. The
+ * simple broker only knows this node's sessions, so each message goes to the
+ * local ones directly and out on the {@link ClusterMessageBus} for the others;
+ * a node that receives it delivers only if its {@link SimpUserRegistry}, which
+ * tracks the sessions connected to it, has the user. A user can be connected
+ * to several nodes at once, so being connected here does not stop the publish.
+ * The publish goes first: if it fails, the caller can retry the whole send
+ * without the local sessions getting the message twice. A message too large
+ * for the bus is delivered to this node's sessions only.
+ */
+@Service
+public class UserMessageRelay {
+    private static final Logger logger = LoggerFactory.getLogger(UserMessageRelay.class);
+
+    private final ClusterMessageBus bus;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public UserMessageRelay(ClusterMessageBus bus, SimpMessagingTemplate messagingTemplate,
+            SimpUserRegistry userRegistry, ObjectMapper objectMapper,
+            @Value("${app.cluster.channel}") String channel) {
+        this.bus = bus;
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        bus.subscribe(channel, this::receive);
+    }
+
+    public void convertAndSendToUser(String username, String destination, Object payload) {
+        String message;
+        try {
+            message = objectMapper.writeValueAsString(
+                    new Envelope(nodeId, username, destination, objectMapper.valueToTree(payload)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Cannot serialize message for " + username, e);
+        }
+        if (message.getBytes(StandardCharsets.UTF_8).length > bus.maxMessageBytes()) {
+            logger.warn("Message to {} on {} is too large for other nodes, delivering it locally only", username, destination);
+        } else {
+            bus.publish(channel, message);
+        }
+        if (userRegistry.getUser(username) != null) {
+            messagingTemplate.convertAndSendToUser(username, destination, payload);
+        }
+    }
+
+    private void receive(String message) {
+        Envelope envelope;
+        try {
+            envelope = objectMapper.readValue(message, Envelope.class);
+        } catch (JsonProcessingException e) {
+            logger.warn("Dropped unreadable cluster message: {}", e.getMessage());
+            return;
+        }
+        if (nodeId.equals(envelope.origin()) || userRegistry.getUser(envelope.user()) == null) {
+            return;
+        }
+        messagingTemplate.convertAndSendToUser(envelope.user(), envelope.destination(), envelope.payload());
+    }
+
+    private record Envelope(String origin, String user, String destination, JsonNode payload) {
+    }
+}
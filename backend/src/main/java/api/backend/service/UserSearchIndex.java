@@ -0,0 +1,278 @@
+package api.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import api.backend.model.user.User;
+import api.backend.model.user.UserSuggestion;
+import api.backend.repository.UserRepository;
+
+/**
+ * Prefix index over usernames and full names for autocomplete. Every indexed
+ * term (the username, the full name and each word of it) is kept in one sorted
+ * array with a parallel array of user ids, so a prefix is a binary search plus
+ * a short scan. Registrations land in a small sorted overlay that is merged
+ * into the arrays once it grows; deleted users are skipped at query time and
+ * dropped by the next merge. The whole index is reloaded periodically so
+ * follower counts used for ranking stay reasonably fresh.
+ */
+@Service
+public class UserSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(UserSearchIndex.class);
+
+    private static final int MERGE_THRESHOLD = 1024;
+    // Bounds the work for one- and two-letter prefixes shared by most of the users
+    private static final int MAX_CANDIDATES = 5000;
+    private static final char SEPARATOR = '\0';
+
+    private final UserRepository userRepository;
+
+    private volatile Map<Long, UserSuggestion> users = new ConcurrentHashMap<>();
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new long[0]);
+    // Terms added since the last merge, keyed by term + SEPARATOR + id
+    private final ConcurrentSkipListMap<String, Long> overlay = new ConcurrentSkipListMap<>();
+    // Changes made while a reload is reading the table, replayed on top of what it read
+    private List<UserSuggestion> addedDuringReload;
+    private List<Long> removedDuringReload;
+
+    public UserSearchIndex(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reload();
+    }
+
+    @Scheduled(initialDelayString = "${app.user-search.refresh-interval-ms}", fixedDelayString = "${app.user-search.refresh-interval-ms}")
+    public void reload() {
+        synchronized (this) {
+            addedDuringReload = new ArrayList<>();
+            removedDuringReload = new ArrayList<>();
+        }
+        long started = System.nanoTime();
+        List<UserSuggestion> loaded = userRepository.findAllSuggestions();
+
+        Map<Long, UserSuggestion> fresh = new ConcurrentHashMap<>(loaded.size() * 2);
+        loaded.forEach(user -> fresh.put(user.id(), user));
+        synchronized (this) {
+            addedDuringReload.forEach(user -> fresh.put(user.id(), user));
+            removedDuringReload.forEach(fresh::remove);
+            addedDuringReload = null;
+            removedDuringReload = null;
+
+            snapshot = build(fresh);
+            users = fresh;
+            overlay.clear();
+        }
+        logger.info("Indexed {} users for autocomplete in {} ms", fresh.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Deferred until commit so a rolled back registration never shows up
+    public void put(User user) {
+        UserSuggestion suggestion = UserSuggestion.of(user);
+        afterCommit(() -> add(suggestion));
+    }
+
+    public void remove(long userId) {
+        afterCommit(() -> delete(userId));
+    }
+
+    /**
+     * Users with a username, full name or word of the full name starting with
+     * {@code prefix}, best first: an exact username, then username prefixes,
+     * then full name prefixes, then word prefixes, each by follower count.
+     */
+    public List<UserSuggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, UserSuggestion> current = users;
+        Set<Long> candidates = new LinkedHashSet<>();
+        Snapshot terms = snapshot;
+        for (int i = terms.lowerBound(key); i < terms.keys.length && candidates.size() < MAX_CANDIDATES; i++) {
+            if (!terms.keys[i].startsWith(key)) {
+                break;
+            }
+            candidates.add(terms.ids[i]);
+        }
+        for (Long id : overlay.subMap(key, key + Character.MAX_VALUE).values()) {
+            if (candidates.size() >= MAX_CANDIDATES) {
+                break;
+            }
+            candidates.add(id);
+        }
+
+        Map<Long, Integer> matchOf = new HashMap<>();
+        List<UserSuggestion> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            UserSuggestion user = current.get(id);
+            if (user != null) {
+                matchOf.put(id, match(user, key));
+                matches.add(user);
+            }
+        }
+        return matches.stream()
+                .sorted(Comparator.<UserSuggestion>comparingInt(user -> matchOf.get(user.id()))
+                        .thenComparing(Comparator.comparingInt(UserSuggestion::followersCount).reversed())
+                        .thenComparingInt(user -> user.username().length())
+                        .thenComparing(UserSuggestion::username))
+                .limit(limit)
+                .toList();
+    }
+
+    private synchronized void add(UserSuggestion user) {
+        if (addedDuringReload != null) {
+            addedDuringReload.add(user);
+        }
+        users.put(user.id(), user);
+        for (String term : terms(user)) {
+            overlay.put(term + SEPARATOR + user.id(), user.id());
+        }
+        if (overlay.size() >= MERGE_THRESHOLD) {
+            merge();
+        }
+    }
+
+    private synchronized void delete(long userId) {
+        if (removedDuringReload != null) {
+            removedDuringReload.add(userId);
+        }
+        users.remove(userId);
+    }
+
+    // One linear pass over the arrays and the overlay, which are both sorted
+    private void merge() {
+        Snapshot base = snapshot;
+        Map<Long, UserSuggestion> current = users;
+        int size = base.keys.length + overlay.size();
+        String[] keys = new String[size];
+        long[] ids = new long[size];
+
+        int n = 0;
+        int i = 0;
+        Iterator<Map.Entry<String, Long>> added = overlay.entrySet().iterator();
+        Map.Entry<String, Long> next = added.hasNext() ? added.next() : null;
+        while (i < base.keys.length || next != null) {
+            String key;
+            long id;
+            if (next == null || (i < base.keys.length && compare(base.keys[i], base.ids[i], next) <= 0)) {
+                key = base.keys[i];
+                id = base.ids[i++];
+            } else {
+                key = next.getKey().substring(0, next.getKey().lastIndexOf(SEPARATOR));
+                id = next.getValue();
+                next = added.hasNext() ? added.next() : null;
+            }
+            if (current.containsKey(id) && (n == 0 || ids[n - 1] != id || !keys[n - 1].equals(key))) {
+                keys[n] = key;
+                ids[n++] = id;
+            }
+        }
+        snapshot = new Snapshot(Arrays.copyOf(keys, n), Arrays.copyOf(ids, n));
+        overlay.clear();
+    }
+
+    private static int compare(String key, long id, Map.Entry<String, Long> entry) {
+        return (key + SEPARATOR + id).compareTo(entry.getKey());
+    }
+
+    private static Snapshot build(Map<Long, UserSuggestion> users) {
+        List<String> entries = new ArrayList<>(users.size() * 3);
+        for (UserSuggestion user : users.values()) {
+            for (String term : terms(user)) {
+                entries.add(term + SEPARATOR + user.id());
+            }
+        }
+        entries.sort(null);
+
+        String[] keys = new String[entries.size()];
+        long[] ids = new long[entries.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String entry = entries.get(i);
+            int separator = entry.lastIndexOf(SEPARATOR);
+            keys[i] = entry.substring(0, separator);
+            ids[i] = Long.parseLong(entry, separator + 1, entry.length(), 10);
+        }
+        return new Snapshot(keys, ids);
+    }
+
+    private static Set<String> terms(UserSuggestion user) {
+        Set<String> terms = new LinkedHashSet<>();
+        terms.add(normalize(user.username()));
+        String fullName = normalize(user.fullName());
+        if (!fullName.isEmpty()) {
+            terms.add(fullName);
+            terms.addAll(Arrays.asList(fullName.split("\\s+")));
+        }
+        terms.remove("");
+        return terms;
+    }
+
+    private static int match(UserSuggestion user, String key) {
+        String username = normalize(user.username());
+        if (username.equals(key)) {
+            return 0;
+        }
+        if (username.startsWith(key)) {
+            return 1;
+        }
+        return normalize(user.fullName()).startsWith(key) ? 2 : 3;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private record Snapshot(String[] keys, long[] ids) {
+
+        // Index of the first key not less than the prefix
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package api.backend.service;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -8,6 +7,7 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,17 +16,23 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.security.authentication.DisabledException;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
+import api.backend.model.media.MediaFormat;
+import api.backend.model.media.StoredUpload;
+import api.backend.model.media.Thumbnails;
 import api.backend.model.user.AdminUserResponse;
 import api.backend.model.user.BanRequest;
 import api.backend.model.user.User;
 import api.backend.model.user.UserResponse;
+import api.backend.model.user.UserSuggestion;
+import api.backend.repository.ReportGroupRepository;
 import api.backend.repository.UserRepository;
 import jakarta.transaction.Transactional;
 
@@ -35,16 +41,42 @@ public class UserService implements UserDetailsService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
+    private final TimelineService timelineService;
+    private final ViewerContext viewer;
+    private final AccountStateService accountStateService;
+    private final UserSearchIndex searchIndex;
+    private final AdminStatsAggregator stats;
+    private final RollupService rollupService;
+    private final ContentStore contentStore;
+    private final TransactionTemplate transactionTemplate;
+    private final AvatarThumbnailer thumbnailer;
+    private final ReportGroupRepository reportGroupRepository;
     @Value("${app.upload.dir}")
     private String uploadDir;
-
-    public UserService(UserRepository userRepository) {
+    @Value("${app.upload.avatar-max-size}")
+    private DataSize avatarMaxSize;
+
+    public UserService(UserRepository userRepository, TimelineService timelineService, ViewerContext viewer,
+            AccountStateService accountStateService, UserSearchIndex searchIndex, AdminStatsAggregator stats,
+            RollupService rollupService, ContentStore contentStore,
+            TransactionTemplate transactionTemplate, AvatarThumbnailer thumbnailer,
+            ReportGroupRepository reportGroupRepository) {
         this.userRepository = userRepository;
+        this.timelineService = timelineService;
+        this.viewer = viewer;
+        this.accountStateService = accountStateService;
+        this.searchIndex = searchIndex;
+        this.stats = stats;
+        this.rollupService = rollupService;
+        this.contentStore = contentStore;
+        this.transactionTemplate = transactionTemplate;
+        this.thumbnailer = thumbnailer;
+        this.reportGroupRepository = reportGroupRepository;
     }
 
     @Transactional
     public String subscribe(long subscribedTo) {
-        long id = ((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getId();
+        long id = viewer.getId();
         if (id == subscribedTo) {
             throw new IllegalArgumentException("You can't subscribe to yourself");
         }
@@ -63,6 +95,9 @@ public class UserService implements UserDetailsService {
         target.getSubscribers().add(currentUser);
 
         userRepository.save(currentUser);
+        userRepository.incrementSubscriptionsCount(currentUser.getId(), 1);
+        userRepository.incrementSubscribersCount(target.getId(), 1);
+        timelineService.follow(currentUser.getId(), target.getId());
         return "subscribed";
 
     }
@@ -72,69 +107,74 @@ public class UserService implements UserDetailsService {
         currentUser.getSubscribedTo().remove(target);
         target.getSubscribers().remove(currentUser);
         userRepository.save(currentUser);
+        userRepository.incrementSubscriptionsCount(currentUser.getId(), -1);
+        userRepository.incrementSubscribersCount(target.getId(), -1);
+        timelineService.unfollow(currentUser.getId(), target.getId());
     }
 
     public List<UserResponse> getSubscribers(long userId, long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return userRepository.findAllBySubscribedToIdAndIdLessThan(userId, cursor, pageable).stream()
-                .map(UserService::toUserResponse).toList();
+        return toUserResponses(userRepository.findAllBySubscribedToIdAndIdLessThan(userId, cursor, pageable).getContent());
     }
 
-    public String updateProfile(MultipartFile file, String ext) {
-        long userId = ((User) SecurityContextHolder.getContext().getAuthentication().getPrincipal()).getId();
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
-
-        String oldAvatarUrl = user.getAvatar(); 
-
-        if (oldAvatarUrl != null && !oldAvatarUrl.isEmpty()) {
+    public String updateProfile(MultipartFile file) {
+        long userId = viewer.getId();
+        // Streamed to disk and stored before the transaction, so no connection is held while it arrives
+        StoredUpload spooled = contentStore.spool(file, avatarMaxSize.toBytes(), Set.of(MediaFormat.Kind.IMAGE));
+        StoredUpload stored;
+        try {
+            stored = contentStore.put(spooled);
+        } finally {
             try {
-                String oldFileName = Paths.get(oldAvatarUrl).getFileName().toString();
-
-                Path oldFilePath = Paths.get(uploadDir, oldFileName);
-
-                Files.deleteIfExists(oldFilePath);
-                logger.info("Successfully deleted old avatar: {}", oldFilePath);
-
+                Files.deleteIfExists(spooled.path());
             } catch (IOException e) {
-                logger.error("Error deleting old avatar: {}", e.getMessage(), e);
+                logger.warn("Could not delete spooled avatar {}: {}", spooled.path(), e.getMessage());
             }
         }
 
-        String newFileName = userId + "." + ext;
-        Path newFilePath = Paths.get(uploadDir, newFileName);
+        String newAvatarUrl = contentStore.urlOf(stored);
+        String oldAvatarUrl = transactionTemplate.execute(status -> {
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new IllegalArgumentException("No authenticated user found"));
+            String previous = user.getAvatar();
 
-        try {
-            Files.createDirectories(Paths.get(uploadDir));
-
-            try (FileOutputStream fos = new FileOutputStream(newFilePath.toString())) {
-                byte[] bytes = file.getBytes();
-                fos.write(bytes);
-            }
-
-            String newAvatarUrl = "images/" + newFileName; 
+            contentStore.retain(stored);
             user.setAvatar(newAvatarUrl);
-            this.userRepository.save(user);
-
-            logger.info("Data successfully written to: {}", newFilePath);
-            return user.getAvatar();
+            userRepository.save(user);
+            contentStore.release(previous);
+            searchIndex.put(user);
+            thumbnailer.schedule(stored.path());
+            return previous;
+        });
+        deleteUnstoredAvatar(oldAvatarUrl);
+
+        logger.info("Avatar of user {} set to {}", userId, newAvatarUrl);
+        return newAvatarUrl;
+    }
 
-        } catch (Exception e) {
-            logger.error("Error uploading new file: {}", e.getMessage(), e);
-            throw new RuntimeException("Error uploading new file: " + e.getMessage(), e);
+    // Avatars from before the content store are plain files that only their user refers to
+    private void deleteUnstoredAvatar(String avatarUrl) {
+        if (avatarUrl == null || avatarUrl.isEmpty() || ContentStore.isStored(avatarUrl)) {
+            return;
+        }
+        try {
+            Path oldFilePath = Paths.get(uploadDir, Paths.get(avatarUrl).getFileName().toString());
+            Files.deleteIfExists(oldFilePath);
+            thumbnailer.delete(oldFilePath);
+            logger.info("Successfully deleted old avatar: {}", oldFilePath);
+        } catch (IOException e) {
+            logger.error("Error deleting old avatar: {}", e.getMessage(), e);
         }
     }
 
     public List<UserResponse> getSubscribtions(long userId, long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return userRepository.findAllBySubscribersIdAndIdLessThan(userId, cursor, pageable).stream()
-                .map(UserService::toUserResponse)
-                .toList();
+        return toUserResponses(userRepository.findAllBySubscribersIdAndIdLessThan(userId, cursor, pageable).getContent());
     }
 
     public List<UserResponse> getAllUsers(long cursor) {
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
-        return userRepository.findAllByIdLessThan(cursor, pageable).stream().map(UserService::toUserResponse).toList();
+        return toUserResponses(userRepository.findAllByIdLessThan(cursor, pageable).getContent());
     }
 
     public List<UserResponse> searchUsers(String query, long cursor) {
@@ -144,11 +184,11 @@ public class UserService implements UserDetailsService {
         
         Pageable pageable = PageRequest.of(0, 10, Direction.DESC, "id");
 
-        return userRepository
-                .findByIdLessThanAndFullNameContainingIgnoreCaseOrUsernameContainingIgnoreCase(cursor, query, query, pageable)
-                .stream()
-                .map(UserService::toUserResponse)
-                .toList();
+        return toUserResponses(userRepository.searchByIdLessThan(cursor, query, pageable).getContent());
+    }
+
+    public List<UserSuggestion> autocomplete(String query, int limit) {
+        return searchIndex.suggest(query, Math.min(Math.max(limit, 1), 20));
     }
 
     public Optional<User> getUserById(Long id) {
@@ -156,16 +196,27 @@ public class UserService implements UserDetailsService {
     }
 
     public UserResponse getUserByUsername(String username) {
-        return toUserResponse(userRepository.findByUsername(username).get());
+        User user = userRepository.findByUsername(username).get();
+        return toUserResponse(user, viewer.follows(user.getId()));
     }
 
     public User saveUser(User user) {
         return userRepository.save(user);
     }
 
+    @Transactional
     public String deleteUser(long userId) {
-        userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
+        User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
+        contentStore.release(user.getAvatar());
+        userRepository.decrementSubscribersCountOfSubscriptions(userId);
+        userRepository.decrementSubscriptionsCountOfSubscribers(userId);
+        // Their reports cascade with them, so the triage entries they were counted in shrink or go away
+        reportGroupRepository.withdrawReportsOf(userId, LocalDateTime.now());
+        reportGroupRepository.deleteEmpty();
         userRepository.deleteById(userId);
+        accountStateService.invalidate(userId);
+        searchIndex.remove(userId);
+        stats.userDeleted();
         return "User deleted successfully";
     }
 
@@ -174,10 +225,15 @@ public class UserService implements UserDetailsService {
         if (request.until() == null) {
             user.setBannedUntil(LocalDateTime.parse("2000-01-01T00:00:00"));
             userRepository.save(user);
+            accountStateService.invalidate(user.getId());
+            stats.banChanged(user.getId(), user.getBannedUntil());
             return "User unbanned successfully";
         }
         user.setBannedUntil(request.until());
         userRepository.save(user);
+        accountStateService.invalidate(user.getId());
+        stats.banChanged(user.getId(), user.getBannedUntil());
+        rollupService.record(RollupService.Event.BANS);
         return "User banned until " + request.until();
     }
 
@@ -185,6 +241,8 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setBannedUntil(null);
         userRepository.save(user);
+        accountStateService.invalidate(user.getId());
+        stats.banChanged(user.getId(), null);
         return "User unbanned successfully";
     }
 
@@ -192,6 +250,7 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setRole("ADMIN");
         userRepository.save(user);
+        accountStateService.invalidate(user.getId());
         return "User " + user.getUsername() + " promoted to ADMIN";
     }
 
@@ -199,6 +258,7 @@ public class UserService implements UserDetailsService {
         User user = userRepository.findById(userId).orElseThrow(() -> new IllegalArgumentException("User not found"));
         user.setRole("USER");
         userRepository.save(user);
+        accountStateService.invalidate(user.getId());
         return "User " + user.getUsername() + " demoted to USER";
 
     }
@@ -217,18 +277,17 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
-    public static UserResponse toUserResponse(User user) {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        User currentUser = null;
-        if (principal instanceof User) {
-            currentUser = (User) principal;
-        }
-        boolean currentInSubscribersByUsername = false;
-        if (currentUser != null) {
-            String currentUsername = currentUser.getUsername();
-            currentInSubscribersByUsername = user.getSubscribers().stream()
-                    .anyMatch(sub -> currentUsername.equals(sub.getUsername()));
-        }
+    public List<UserResponse> toUserResponses(List<User> users) {
+        Set<Long> followed = viewer.followedAmong(users.stream().map(User::getId).toList());
+        return users.stream().map(user -> toUserResponse(user, followed.contains(user.getId()))).toList();
+    }
+
+    public List<AdminUserResponse> toAdminUserResponses(List<User> users) {
+        Set<Long> followed = viewer.followedAmong(users.stream().map(User::getId).toList());
+        return users.stream().map(user -> toAdminUserResponse(user, followed.contains(user.getId()))).toList();
+    }
+
+    public static UserResponse toUserResponse(User user, boolean followedByViewer) {
         return new UserResponse(
                 user.getId(),
                 user.getFullName(),
@@ -236,25 +295,15 @@ public class UserService implements UserDetailsService {
                 user.getEmail(),
                 user.getRole(),
                 user.getAvatar(),
+                Thumbnails.urls(user.getAvatar()),
                 user.getCreatedAt(),
-                user.getPosts().size(),
-                user.getSubscribers().size(),
-                user.getSubscribedTo().size(),
-                currentInSubscribersByUsername);
+                user.getPostsCount(),
+                user.getSubscribersCount(),
+                user.getSubscriptionsCount(),
+                followedByViewer);
     }
 
-    public static AdminUserResponse toAdminUserResponse(User user) {
-        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        User currentUser = null;
-        if (principal instanceof User) {
-            currentUser = (User) principal;
-        }
-        boolean currentInSubscribersByUsername = false;
-        if (currentUser != null) {
-            String currentUsername = currentUser.getUsername();
-            currentInSubscribersByUsername = user.getSubscribers().stream()
-                    .anyMatch(sub -> currentUsername.equals(sub.getUsername()));
-        }
+    public static AdminUserResponse toAdminUserResponse(User user, boolean followedByViewer) {
         return new AdminUserResponse(
                 user.getId(),
                 user.getFullName(),
@@ -262,11 +311,12 @@ public class UserService implements UserDetailsService {
                 user.getEmail(),
                 user.getRole(),
                 user.getAvatar(),
+                Thumbnails.urls(user.getAvatar()),
                 user.getCreatedAt(),
-                user.getPosts().size(),
-                user.getSubscribers().size(),
-                user.getSubscribedTo().size(),
-                currentInSubscribersByUsername,
+                user.getPostsCount(),
+                user.getSubscribersCount(),
+                user.getSubscriptionsCount(),
+                followedByViewer,
                 user.getBannedUntil() != null && user.getBannedUntil().isAfter(LocalDateTime.now()),
                 user.getBannedUntil());
     }
@@ -0,0 +1,111 @@
+package api.backend.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+import api.backend.model.user.User;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+import api.backend.repository.like.CommentLikeRepository;
+
+/**
+ * The authenticated user as seen by the DTO mappers of one request. Identity
+ * comes straight from the principal; which authors the viewer follows and which
+ * posts and comments they liked are resolved for a whole page in one query and
+ * remembered until the request ends.
+ */
+@Component
+@RequestScope
+public class ViewerContext {
+
+    private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final CommentLikeRepository commentLikeRepository;
+    private final Map<Long, Boolean> followed = new HashMap<>();
+    private final Map<Long, Boolean> likedPosts = new HashMap<>();
+    private final Map<Long, Boolean> likedComments = new HashMap<>();
+    private User principal;
+    private boolean resolved;
+
+    public ViewerContext(UserRepository userRepository, PostRepository postRepository,
+            CommentLikeRepository commentLikeRepository) {
+        this.userRepository = userRepository;
+        this.postRepository = postRepository;
+        this.commentLikeRepository = commentLikeRepository;
+    }
+
+    public boolean isAuthenticated() {
+        return principal() != null;
+    }
+
+    public long getId() {
+        User user = principal();
+        if (user == null) {
+            throw new IllegalStateException("No authenticated user found");
+        }
+        return user.getId();
+    }
+
+    public String getRole() {
+        User user = principal();
+        return user != null ? user.getRole() : null;
+    }
+
+    public boolean follows(long userId) {
+        return followedAmong(List.of(userId)).contains(userId);
+    }
+
+    public Set<Long> followedAmong(Collection<Long> userIds) {
+        if (!isAuthenticated()) {
+            return Set.of();
+        }
+        return resolve(followed, userIds, missing -> userRepository.findSubscribedToIdsIn(getId(), missing));
+    }
+
+    public Set<Long> likedPostsAmong(Collection<Long> postIds) {
+        if (!isAuthenticated()) {
+            return Set.of();
+        }
+        return resolve(likedPosts, postIds, missing -> postRepository.findLikedPostIds(getId(), missing));
+    }
+
+    public Set<Long> likedCommentsAmong(Collection<Long> commentIds) {
+        if (!isAuthenticated()) {
+            return Set.of();
+        }
+        return resolve(likedComments, commentIds,
+                missing -> commentLikeRepository.findLikedCommentIds(getId(), missing));
+    }
+
+    // Loads only the ids this request has not asked about yet
+    private static Set<Long> resolve(Map<Long, Boolean> known, Collection<Long> ids,
+            Function<List<Long>, Set<Long>> loader) {
+        List<Long> missing = ids.stream().filter(id -> !known.containsKey(id)).distinct().toList();
+        if (!missing.isEmpty()) {
+            Set<Long> hits = loader.apply(missing);
+            missing.forEach(id -> known.put(id, hits.contains(id)));
+        }
+        return ids.stream().filter(known::get).collect(Collectors.toSet());
+    }
+
+    private User principal() {
+        if (!resolved) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof User user) {
+                principal = user;
+            }
+            resolved = true;
+        }
+        return principal;
+    }
+}
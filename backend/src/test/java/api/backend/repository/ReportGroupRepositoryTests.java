@@ -0,0 +1,105 @@
+package api.backend.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import api.backend.model.post.Post;
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportGroup;
+import api.backend.model.user.User;
+
+@DataJpaTest
+class ReportGroupRepositoryTests {
+
+	private static final LocalDateTime REPORTED_AT = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+	@Autowired
+	private TestEntityManager entityManager;
+	@Autowired
+	private ReportGroupRepository reportGroupRepository;
+
+	private int users;
+
+	@Test
+	void withdrawingAReporterShrinksTheirGroupsAndDropsEmptyOnes() {
+		User reported = entityManager.persist(user());
+		Post post = entityManager.persist(new Post(reported, "title", "content", REPORTED_AT));
+		User leaving = entityManager.persist(user());
+		User staying = entityManager.persist(user());
+		User reviewed = entityManager.persist(user());
+
+		report(leaving, reported, post, Report.Status.PENDING);
+		report(staying, reported, post, Report.Status.PENDING);
+		report(reviewed, reported, post, Report.Status.RESOLVED);
+		ReportGroup postGroup = group(reported, post, 3, 2);
+		report(leaving, reported, null, Report.Status.PENDING);
+		ReportGroup profileGroup = group(reported, null, 1, 1);
+		entityManager.flush();
+
+		assertEquals(2, reportGroupRepository.withdrawReportsOf(leaving.getId(), REPORTED_AT.plusDays(1)));
+		assertEquals(1, reportGroupRepository.deleteEmpty());
+		entityManager.clear();
+
+		ReportGroup shrunk = entityManager.find(ReportGroup.class, postGroup.getId());
+		assertEquals(2, shrunk.getReportCount());
+		assertEquals(1, shrunk.getPendingCount());
+		assertEquals(ReportGroup.priority(1, REPORTED_AT), shrunk.getPriority(), 1e-9);
+		assertEquals(Report.Status.PENDING, shrunk.getStatus());
+		assertNull(entityManager.find(ReportGroup.class, profileGroup.getId()));
+	}
+
+	@Test
+	void aGroupLeftWithoutPendingReportsIsResolved() {
+		User reported = entityManager.persist(user());
+		Post post = entityManager.persist(new Post(reported, "title", "content", REPORTED_AT));
+		User leaving = entityManager.persist(user());
+		User reviewed = entityManager.persist(user());
+
+		report(leaving, reported, post, Report.Status.PENDING);
+		report(reviewed, reported, post, Report.Status.DISMISSED);
+		ReportGroup group = group(reported, post, 2, 1);
+		entityManager.flush();
+
+		reportGroupRepository.withdrawReportsOf(leaving.getId(), REPORTED_AT.plusDays(1));
+		reportGroupRepository.deleteEmpty();
+		entityManager.clear();
+
+		ReportGroup resolved = entityManager.find(ReportGroup.class, group.getId());
+		assertEquals(List.of(1, 0), List.of(resolved.getReportCount(), resolved.getPendingCount()));
+		assertEquals(Report.Status.RESOLVED, resolved.getStatus());
+		assertEquals(REPORTED_AT.plusDays(1), resolved.getReviewedAt());
+	}
+
+	private void report(User reporter, User reported, Post post, Report.Status status) {
+		Report report = new Report(reporter, reported, post, "reason");
+		report.setCreatedAt(REPORTED_AT);
+		report.setStatus(status);
+		entityManager.persist(report);
+	}
+
+	private ReportGroup group(User reported, Post post, int reportCount, int pendingCount) {
+		ReportGroup group = new ReportGroup();
+		group.setTargetKey(ReportGroup.targetKey(post != null ? post.getId() : null, reported.getId()));
+		group.setReported(reported);
+		group.setPost(post);
+		group.setReportCount(reportCount);
+		group.setPendingCount(pendingCount);
+		group.setFirstReportedAt(REPORTED_AT);
+		group.setLastReportedAt(REPORTED_AT);
+		group.setPriority(ReportGroup.priority(pendingCount, REPORTED_AT));
+		return entityManager.persist(group);
+	}
+
+	private User user() {
+		String username = "user" + users++;
+		return new User(username, username, username + "@example.com", "x".repeat(60), "USER", REPORTED_AT);
+	}
+}
@@ -0,0 +1,114 @@
+package api.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import api.backend.model.comment.Comment;
+import api.backend.model.post.Post;
+import api.backend.model.user.User;
+import api.backend.repository.CommentRepository;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+import api.backend.repository.like.CommentLikeRepository;
+
+/**
+ * Counts the SQL statements Hibernate prepares, so lazy associations touched
+ * while mapping a page show up as well as the repository calls themselves.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CommentServiceQueryCountTests {
+
+	@Autowired
+	private TestEntityManager entityManager;
+	@Autowired
+	private CommentRepository commentRepository;
+	@Autowired
+	private PostRepository postRepository;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private CommentLikeRepository commentLikeRepository;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private CommentService commentService;
+	private Statistics statistics;
+	private User viewer;
+	private Post post;
+
+	@BeforeEach
+	void setUp() {
+		viewer = entityManager.persist(user("viewer"));
+		post = entityManager.persist(new Post(viewer, "title", "content", LocalDateTime.now()));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(viewer, null, viewer.getAuthorities()));
+		ViewerContext viewerContext = new ViewerContext(userRepository, postRepository, commentLikeRepository);
+		commentService = new CommentService(commentRepository, postRepository, userRepository,
+				commentLikeRepository, viewerContext, mock(CounterService.class), mock(RollupService.class),
+				jdbcTemplate);
+		statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class)
+				.getStatistics();
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void repliesStatementCountDoesNotGrowWithPageSize() {
+		assertEquals(statementsForReplies(1), statementsForReplies(10));
+	}
+
+	@Test
+	void topLevelStatementCountDoesNotGrowWithPageSize() {
+		assertEquals(statementsForTopLevel(1), statementsForTopLevel(10));
+	}
+
+	private long statementsForReplies(int pageSize) {
+		Comment parent = entityManager.persist(new Comment(viewer, post, "parent", null));
+		for (int i = 0; i < pageSize; i++) {
+			entityManager.persist(new Comment(author(pageSize, i), post, "reply " + i, parent));
+		}
+		return statementsFor(() -> commentService.getReplies(parent.getId(), Long.MAX_VALUE));
+	}
+
+	private long statementsForTopLevel(int pageSize) {
+		Post page = entityManager.persist(new Post(viewer, "page " + pageSize, "content", LocalDateTime.now()));
+		for (int i = 0; i < pageSize; i++) {
+			entityManager.persist(new Comment(author(pageSize, i), page, "comment " + i, null));
+		}
+		return statementsFor(() -> commentService.getTopLevelComments(page.getId(), Long.MAX_VALUE));
+	}
+
+	// Starts from an empty persistence context so nothing is served from the first-level cache
+	private long statementsFor(Runnable call) {
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+		call.run();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private User author(int pageSize, int index) {
+		return entityManager.persist(user("author" + pageSize + "_" + index));
+	}
+
+	private static User user(String username) {
+		return new User(username, username, username + "@example.com", "x".repeat(60), "USER", LocalDateTime.now());
+	}
+}
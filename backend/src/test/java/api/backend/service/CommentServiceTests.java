@@ -0,0 +1,110 @@
+package api.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import api.backend.model.comment.Comment;
+import api.backend.model.comment.CommentResponse;
+import api.backend.model.post.Post;
+import api.backend.model.user.User;
+import api.backend.repository.CommentRepository;
+import api.backend.repository.PostRepository;
+import api.backend.repository.UserRepository;
+import api.backend.repository.like.CommentLikeRepository;
+
+@ExtendWith(MockitoExtension.class)
+class CommentServiceTests {
+
+	private static final long VIEWER_ID = 1L;
+	private static final long POST_ID = 7L;
+
+	@Mock
+	private CommentRepository commentRepository;
+	@Mock
+	private PostRepository postRepository;
+	@Mock
+	private UserRepository userRepository;
+	@Mock
+	private CommentLikeRepository commentLikeRepository;
+	@Mock
+	private CounterService counterService;
+	@Mock
+	private RollupService rollupService;
+	@Mock
+	private JdbcTemplate jdbcTemplate;
+
+	private CommentService commentService;
+
+	@BeforeEach
+	void setUp() {
+		User viewer = user(VIEWER_ID);
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(viewer, null, viewer.getAuthorities()));
+		ViewerContext viewerContext = new ViewerContext(userRepository, postRepository, commentLikeRepository);
+		commentService = new CommentService(commentRepository, postRepository, userRepository,
+				commentLikeRepository, viewerContext, counterService, rollupService, jdbcTemplate);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void topLevelCommentsResolveLikesWithOneQueryPerPage() {
+		List<Comment> page = comments(10);
+		when(commentRepository.findByPostIdAndParentIsNullAndIdLessThan(eq(POST_ID), eq(Long.MAX_VALUE), any()))
+				.thenReturn(new SliceImpl<>(page));
+		when(commentLikeRepository.findLikedCommentIds(eq(VIEWER_ID), anyCollection()))
+				.thenReturn(Set.of(page.get(0).getId(), page.get(3).getId()));
+
+		List<CommentResponse> responses = commentService.getTopLevelComments(POST_ID, Long.MAX_VALUE);
+
+		assertEquals(10, responses.size());
+		assertEquals(List.of(true, false, false, true, false, false, false, false, false, false),
+				responses.stream().map(CommentResponse::isLiked).toList());
+		verify(commentLikeRepository).findLikedCommentIds(eq(VIEWER_ID), anyCollection());
+		verify(userRepository).findSubscribedToIdsIn(eq(VIEWER_ID), anyCollection());
+		verify(commentLikeRepository, never()).findByCommentIdAndUserId(anyLong(), anyLong());
+		verify(userRepository, never()).findById(anyLong());
+	}
+
+	private static List<Comment> comments(int count) {
+		Post post = new Post(user(2L), "title", "content", LocalDateTime.now());
+		post.setId(POST_ID);
+		return LongStream.rangeClosed(1, count).mapToObj(id -> {
+			Comment comment = new Comment(user(10 + id), post, "comment " + id, null);
+			comment.setId(100 + id);
+			return comment;
+		}).toList();
+	}
+
+	private static User user(long id) {
+		User user = new User("User " + id, "user" + id, "user" + id + "@example.com", "password", "USER",
+				LocalDateTime.now());
+		user.setId(id);
+		return user;
+	}
+}
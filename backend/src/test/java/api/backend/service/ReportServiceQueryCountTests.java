@@ -0,0 +1,121 @@
+package api.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import api.backend.model.post.Post;
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportResponse;
+import api.backend.model.user.User;
+import api.backend.repository.PostRepository;
+import api.backend.repository.ReportGroupRepository;
+import api.backend.repository.ReportRepository;
+import api.backend.repository.UserRepository;
+import api.backend.repository.like.CommentLikeRepository;
+
+/**
+ * Benchmarks the moderation queue by the SQL statements Hibernate prepares
+ * per page, which must not depend on how many reports the page holds.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ReportServiceQueryCountTests {
+
+	@Autowired
+	private TestEntityManager entityManager;
+	@Autowired
+	private ReportRepository reportRepository;
+	@Autowired
+	private PostRepository postRepository;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private CommentLikeRepository commentLikeRepository;
+	@Autowired
+	private ReportGroupRepository reportGroupRepository;
+
+	private ReportService reportService;
+	private Statistics statistics;
+	private int users;
+
+	@BeforeEach
+	void setUp() {
+		User admin = entityManager.persist(user("ADMIN"));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+		ViewerContext viewerContext = new ViewerContext(userRepository, postRepository, commentLikeRepository);
+		reportService = new ReportService(reportRepository, postRepository, userRepository, viewerContext,
+				mock(AdminStatsAggregator.class), reportGroupRepository);
+		statistics = entityManager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class)
+				.getStatistics();
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithPageSize() {
+		assertEquals(statementsForPage(1), statementsForPage(10));
+	}
+
+	@Test
+	void everyFilteredKeysetPageCostsTheSame() {
+		User reported = entityManager.persist(user("USER"));
+		Post post = entityManager.persist(new Post(reported, "title", "content", LocalDateTime.now()));
+		for (int i = 0; i < 25; i++) {
+			entityManager.persist(new Report(entityManager.persist(user("USER")), reported, i % 2 == 0 ? post : null,
+					"reason " + i));
+		}
+
+		List<ReportResponse> first = new ArrayList<>();
+		long firstStatements = statementsFor(() -> first.addAll(
+				reportService.getReports(Long.MAX_VALUE, "pending", "post", reported.getId())));
+		long cursor = first.get(first.size() - 1).id();
+		List<ReportResponse> second = new ArrayList<>();
+		long secondStatements = statementsFor(() -> second.addAll(
+				reportService.getReports(cursor, "pending", "post", reported.getId())));
+
+		assertEquals(10, first.size());
+		assertEquals(3, second.size());
+		assertEquals(firstStatements, secondStatements);
+	}
+
+	private long statementsForPage(int pageSize) {
+		User reported = entityManager.persist(user("USER"));
+		Post post = entityManager.persist(new Post(reported, "title", "content", LocalDateTime.now()));
+		for (int i = 0; i < pageSize; i++) {
+			entityManager.persist(new Report(entityManager.persist(user("USER")), reported, post, "reason " + i));
+		}
+		return statementsFor(() -> reportService.getReports(Long.MAX_VALUE, null, null, reported.getId()));
+	}
+
+	// Starts from an empty persistence context so nothing is served from the first-level cache
+	private long statementsFor(Runnable call) {
+		entityManager.flush();
+		entityManager.clear();
+		statistics.clear();
+		call.run();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private User user(String role) {
+		String username = "user" + users++;
+		return new User(username, username, username + "@example.com", "x".repeat(60), role, LocalDateTime.now());
+	}
+}
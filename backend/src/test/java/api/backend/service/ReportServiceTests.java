@@ -0,0 +1,132 @@
+package api.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import api.backend.model.report.Report;
+import api.backend.model.report.ReportGroup;
+import api.backend.model.report.ReportResponse;
+import api.backend.model.report.ReportRow;
+import api.backend.model.user.User;
+import api.backend.repository.PostRepository;
+import api.backend.repository.ReportGroupRepository;
+import api.backend.repository.ReportRepository;
+import api.backend.repository.UserRepository;
+import api.backend.repository.like.CommentLikeRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTests {
+
+	private static final long ADMIN_ID = 1L;
+
+	@Mock
+	private ReportRepository reportRepository;
+	@Mock
+	private PostRepository postRepository;
+	@Mock
+	private UserRepository userRepository;
+	@Mock
+	private CommentLikeRepository commentLikeRepository;
+	@Mock
+	private AdminStatsAggregator stats;
+	@Mock
+	private ReportGroupRepository reportGroupRepository;
+
+	private ReportService reportService;
+
+	@BeforeEach
+	void setUp() {
+		User admin = new User("Admin", "admin", "admin@example.com", "password", "ADMIN", LocalDateTime.now());
+		admin.setId(ADMIN_ID);
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(admin, null, admin.getAuthorities()));
+		ViewerContext viewerContext = new ViewerContext(userRepository, postRepository, commentLikeRepository);
+		reportService = new ReportService(reportRepository, postRepository, userRepository, viewerContext, stats,
+				reportGroupRepository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void pageIsMappedFromTheProjectionAlone() {
+		when(reportRepository.findQueue(eq(Long.MAX_VALUE), eq(Report.Status.PENDING), eq("post"), isNull(), any()))
+				.thenReturn(rows(3));
+		when(userRepository.findSubscribedToIdsIn(eq(ADMIN_ID), anyCollection())).thenReturn(Set.of(21L));
+
+		List<ReportResponse> reports = reportService.getReports(Long.MAX_VALUE, "pending", "post", null);
+
+		assertEquals(List.of(103L, 102L, 101L), reports.stream().map(ReportResponse::id).toList());
+		ReportResponse first = reports.get(0);
+		assertEquals("reporter3", first.reporter().username());
+		assertEquals("reported3", first.reported().username());
+		assertTrue(first.reported().isBanned());
+		assertEquals(203L, first.postId());
+		assertTrue(reports.get(2).reporter().isFollowed());
+		assertFalse(reports.get(0).reporter().isFollowed());
+		verify(userRepository, never()).findById(anyLong());
+		verify(reportRepository, never()).findById(anyLong());
+	}
+
+	@Test
+	void unknownFiltersAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> reportService.getReports(Long.MAX_VALUE, "open", null, null));
+		assertThrows(IllegalArgumentException.class, () -> reportService.getReports(Long.MAX_VALUE, null, "comment", null));
+	}
+
+	@Test
+	void reviewingAGroupUpdatesAllItsReportsInOneStatement() {
+		ReportGroup group = new ReportGroup();
+		group.setId(9L);
+		group.setReported(new User("Reported", "reported", "reported@example.com", "password", "USER",
+				LocalDateTime.now()));
+		group.getReported().setId(40L);
+		when(reportGroupRepository.findById(9L)).thenReturn(Optional.of(group));
+		when(reportRepository.reviewPendingForTarget(isNull(), eq(40L), eq(Report.Status.RESOLVED), any()))
+				.thenReturn(120);
+
+		assertEquals("120 reports resolved", reportService.reviewReportGroup(9L, Report.Status.RESOLVED));
+
+		verify(reportGroupRepository).reviewAll(eq(9L), eq(Report.Status.RESOLVED), any());
+		verify(stats).reportStatusChanged(Report.Status.PENDING, Report.Status.RESOLVED, 120);
+		verify(reportRepository, never()).findById(anyLong());
+		verify(reportRepository, never()).save(any());
+	}
+
+	private static List<ReportRow> rows(int count) {
+		LocalDateTime now = LocalDateTime.now();
+		return LongStream.iterate(count, id -> id >= 1, id -> id - 1).mapToObj(id -> new ReportRow(100 + id,
+				"reason " + id, Report.Status.PENDING, now, null, 200 + id, false,
+				20 + id, "Reporter " + id, "reporter" + id, "reporter" + id + "@example.com", "USER", null, now, 0, 0, 0,
+				40 + id, "Reported " + id, "reported" + id, "reported" + id + "@example.com", "USER", null, now, 0, 0, 0,
+				id == 3 ? now.plusDays(1) : null))
+				.toList();
+	}
+}
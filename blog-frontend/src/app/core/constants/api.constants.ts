@@ -76,6 +76,7 @@ export const API_ENDPOINTS = {
   },
   MEDIA: {
     UPLOAD: '/media/upload',
+    UPLOADS: '/media/uploads',
     LOCAL_UPLOAD: '/media/local/upload',
     DELETE: '/media/delete',
     GET: '/media', 
@@ -13,6 +13,7 @@ export const APP_CONSTANTS = {
     ALLOWED_VIDEO_TYPES: ['video/mp4', 'video/webm', 'video/ogg'],
     ALLOWED_IMAGE_EXTENSIONS: ["jpg", "jpeg", "png", "gif", "webp"],
     ALLOWED_VIDEO_EXTENSIONS: ['mp4', 'webm', 'ogg'],
+    UPLOAD_POLL_INTERVAL_MS: 1000,
   },
   VALIDATION: {
     MIN_PASSWORD_LENGTH: 8,
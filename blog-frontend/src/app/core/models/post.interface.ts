@@ -23,6 +23,14 @@ export interface CreatePostRequest {
   content: string;
 }
 
+export interface MediaUploadStatus {
+  id: number;
+  status: 'PENDING' | 'UPLOADING' | 'DONE' | 'FAILED';
+  type: 'image' | 'video';
+  url?: string;
+  error?: string;
+}
+
 export interface UpdatePostRequest {
   title?: string;
   content?: string;
@@ -1,8 +1,9 @@
 import { Injectable, inject } from '@angular/core';
 import { HttpClient } from '@angular/common/http';
-import { Observable } from 'rxjs';
-import { Post, CreatePostRequest, UpdatePostRequest } from '../../../core/models/post.interface';
+import { Observable, exhaustMap, first, map, switchMap, timer } from 'rxjs';
+import { Post, CreatePostRequest, UpdatePostRequest, MediaUploadStatus } from '../../../core/models/post.interface';
 import { API_BASE_URL, API_ENDPOINTS } from '../../../core/constants/api.constants';
+import { APP_CONSTANTS } from '../../../core/constants/app.constants';
 
 @Injectable({
   providedIn: 'root',
@@ -60,13 +61,24 @@ export class PostService {
     );
   }
 
-  uploadFile(file: File) {
+  /**
+   * Upload a file; the server stores it in the background, so poll until it is done
+   */
+  uploadFile(file: File): Observable<{ url: string }> {
     const formData = new FormData();
     formData.append('file', file);
-    return this.http.post<{ url: string }>(
-      `${this.baseUrl}${API_ENDPOINTS.MEDIA.UPLOAD}`,
-      formData
+    const uploadsUrl = `${this.baseUrl}${API_ENDPOINTS.MEDIA.UPLOADS}`;
+    return this.http.post<MediaUploadStatus>(uploadsUrl, formData).pipe(
+      switchMap(upload => timer(0, APP_CONSTANTS.MEDIA.UPLOAD_POLL_INTERVAL_MS).pipe(
+        exhaustMap(() => this.http.get<MediaUploadStatus>(`${uploadsUrl}/${upload.id}`)),
+        first(status => status.status === 'DONE' || status.status === 'FAILED')
+      )),
+      map(status => {
+        if (status.status === 'FAILED' || !status.url) {
+          throw new Error(status.error || 'Failed to upload file');
+        }
+        return { url: status.url };
+      })
     );
-    // return new Observable<{ url: string }>();
   }
 }